@@ -9,7 +9,13 @@ import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 
 public class App {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // with map files to solve there is no need for a window, so run headless
+        if (args.length > 0) {
+            BatchSolver.main(args);
+            return;
+        }
+
         try {
             for (LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
                 if ("Nimbus".equals(info.getName())) {
@@ -0,0 +1,465 @@
+/*
+ * [BatchSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Solves many map files without the visualizer, several at a time, streaming one JSON line or CSV
+ * row per file; each file holds back an estimate of the heap it needs before it is read.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class BatchSolver {
+    private static final String SNAPSHOT_SUFFIX = ".tmap";
+    // reading and solving a map peaks at about four times its file size in either format; five leaves some room
+    private static final int HEAP_BYTES_PER_FILE_BYTE = 5;
+    // out of core, only a few ints and the name of each town are on the heap
+    private static final int MAPPED_HEAP_BYTES_PER_FILE_BYTE = 1;
+    private static final int HEAP_PERMIT_BYTES = 1 << 20;
+    private static final long CACHE_MEMORY_BYTES = 64 << 20;
+    // options that take the argument after them as their value
+    private static final Set<String> VALUE_OPTIONS = Set.of("-threads", "-format", "-output", "-radius", "-coverage",
+            "-search", "-bound", "-cache");
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean csv;
+    private File outputFile;
+    private double radius = -1; // below zero, stations cover their neighbours
+    private int coverage = 1; // the number of stations every town needs
+    private long searchMillis = -1; // below zero, the greedy answer is kept as it is
+    private long boundMillis = -1; // below zero, no lower bound is worked out
+    private boolean mapped;
+    private SolveCache cache;
+    private boolean metrics;
+    private final List<String> inputs = new ArrayList<>();
+
+    private final Semaphore heapPermits;
+    private final int maxHeapPermits;
+    private final AtomicInteger failures = new AtomicInteger();
+    private PrintWriter output;
+
+    public BatchSolver() {
+        // leave a quarter of the heap for everything that is not a map being solved
+        maxHeapPermits = (int) Math.max(1, Runtime.getRuntime().maxMemory() / 4 * 3 / HEAP_PERMIT_BYTES);
+        heapPermits = new Semaphore(maxHeapPermits, true);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        BatchSolver batch = new BatchSolver();
+        if (!batch.parseArguments(args)) {
+            System.err.println("Usage: BatchSolver [-threads n] [-format jsonl|csv] [-output file] [-radius r] [-coverage k] [-search millis] [-bound millis] [-mapped] [-cache directory] [-metrics] <file | directory | glob>...");
+            System.exit(2);
+        }
+        System.exit(batch.run() == 0 ? 0 : 1);
+    }
+
+    private boolean parseArguments(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (VALUE_OPTIONS.contains(args[i]) && i + 1 == args.length) {
+                    return false;
+                }
+                switch (args[i]) {
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-format":
+                        String format = args[++i];
+                        if (!format.equals("jsonl") && !format.equals("csv")) {
+                            return false;
+                        }
+                        csv = format.equals("csv");
+                        break;
+                    case "-output":
+                        outputFile = new File(args[++i]);
+                        break;
+                    case "-radius":
+                        radius = Double.parseDouble(args[++i]);
+                        break;
+                    case "-coverage":
+                        coverage = Integer.parseInt(args[++i]);
+                        break;
+                    case "-search":
+                        searchMillis = Long.parseLong(args[++i]);
+                        break;
+                    case "-bound":
+                        boundMillis = Long.parseLong(args[++i]);
+                        break;
+                    case "-mapped":
+                        mapped = true;
+                        break;
+                    case "-cache":
+                        cache = new SolveCache(CACHE_MEMORY_BYTES, Paths.get(args[++i]));
+                        break;
+                    case "-metrics":
+                        metrics = true;
+                        break;
+                    default:
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException badNumber) {
+            return false;
+        }
+        // the out-of-core solver only runs the plain greedy pass, and never has a graph to fingerprint
+        boolean mappedAlone = !mapped
+                || (radius < 0 && coverage == 1 && searchMillis < 0 && boundMillis < 0 && cache == null);
+        // local search and the lower bound only know single coverage
+        boolean searchSingle = searchMillis < 0 || coverage == 1;
+        boolean boundSingle = boundMillis < 0 || coverage == 1;
+        return !inputs.isEmpty() && threads > 0 && coverage > 0 && mappedAlone && searchSingle && boundSingle;
+    }
+
+    /**
+     * Solves every matched file and writes its result line.
+     * @return the number of files that could not be read or solved
+     */
+    public int run() throws IOException, InterruptedException {
+        if (metrics) {
+            SolverMetrics.setEnabled(true);
+        }
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            collectFiles(input, files);
+        }
+
+        Writer writer = outputFile == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8);
+        output = new PrintWriter(new BufferedWriter(writer));
+        if (csv) {
+            output.println("file,towns,edges,stationCount,readMillis,solveMillis,allocatedBytes,stations,"
+                    + (coverage > 1 ? "infeasibleTowns," : "") + (boundMillis >= 0 ? "lowerBound,optimalityRatio," : "")
+                    + "error");
+            output.flush();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Path file : files) {
+                pool.execute(() -> solveFile(file));
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            if (outputFile == null) {
+                output.flush();
+            } else {
+                output.close();
+            }
+        }
+        if (metrics) {
+            StringBuilder json = new StringBuilder("{");
+            for (Map.Entry<String, Long> value : SolverMetrics.snapshot().entrySet()) {
+                json.append(json.length() == 1 ? "" : ", ").append(jsonString(value.getKey())).append(": ")
+                        .append(value.getValue());
+            }
+            System.err.println(json.append('}'));
+        }
+        return failures.get();
+    }
+
+    private void collectFiles(String input, List<Path> files) throws IOException {
+        Path path = Paths.get(input);
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> directory = Files.newDirectoryStream(path)) {
+                List<Path> found = new ArrayList<>();
+                for (Path file : directory) {
+                    if (Files.isRegularFile(file)) {
+                        found.add(file);
+                    }
+                }
+                found.sort(null);
+                files.addAll(found);
+            }
+        } else if (Files.exists(path) || !isGlob(input)) {
+            files.add(path); // a missing file is reported in the results like any other failure
+        } else {
+            // walk from the leading directories that have no wildcards in them
+            Path base = Paths.get(".");
+            Path pattern = path;
+            for (int i = 0; i < path.getNameCount() && !isGlob(path.getName(i).toString()); i++) {
+                base = base.resolve(path.getName(i));
+            }
+            if (path.isAbsolute()) {
+                base = path.getRoot().resolve(base.normalize());
+            } else {
+                pattern = Paths.get(".").resolve(path);
+            }
+            PathMatcher matcher = path.getFileSystem().getPathMatcher("glob:" + pattern);
+            try (Stream<Path> walk = Files.walk(base)) {
+                walk.filter(Files::isRegularFile).filter(matcher::matches).map(Path::normalize).sorted()
+                        .forEach(files::add);
+            }
+        }
+    }
+
+    private static boolean isGlob(String input) {
+        return input.indexOf('*') >= 0 || input.indexOf('?') >= 0 || input.indexOf('[') >= 0 || input.indexOf('{') >= 0;
+    }
+
+    private void solveFile(Path file) {
+        // a map too big for the whole budget still runs, but only once nothing else is in memory
+        long estimate = 0;
+        try {
+            estimate = Files.size(file) * (mapped ? MAPPED_HEAP_BYTES_PER_FILE_BYTE : HEAP_BYTES_PER_FILE_BYTE);
+        } catch (IOException sizeError) {
+            // leave the estimate at zero; the read below reports the error
+        }
+        int permits = (int) Math.min(maxHeapPermits, Math.max(1, estimate / HEAP_PERMIT_BYTES));
+        try {
+            heapPermits.acquire(permits);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        long allocatedBefore = allocatedBytes();
+        try {
+            if (mapped) {
+                solveMapped(file, allocatedBefore);
+            } else {
+                solveInMemory(file, allocatedBefore);
+            }
+        } catch (NoSuchFileException missing) {
+            failures.incrementAndGet();
+            writeError(file, "File not found");
+        } catch (IOException | RuntimeException error) {
+            failures.incrementAndGet();
+            writeError(file, error.getMessage() == null ? error.toString() : error.getMessage());
+        } catch (OutOfMemoryError outOfMemory) {
+            // the estimate fell short; only this file's graph is lost, so the batch carries on
+            failures.incrementAndGet();
+            writeError(file, "Out of memory");
+        } finally {
+            heapPermits.release(permits);
+        }
+    }
+
+    private void solveInMemory(Path file, long allocatedBefore) throws IOException {
+        long start = System.nanoTime();
+        // read before the map, so a file changed while it is read is not cached as the new contents
+        Object cacheSource = cache == null ? null : cacheSource(file);
+        TownGraph graph = file.toString().endsWith(SNAPSHOT_SUFFIX)
+                ? TownMapSerializer.readGraphFromSnapshot(file.toFile())
+                : TownMapSerializer.readGraphFromFile(file.toFile());
+        long read = System.nanoTime();
+        // the coverage graph is built once, on first use, and shared by the solve and the bound
+        CoverageFireStationSolver radiusSolver = radius < 0 ? null : new CoverageFireStationSolver(graph, radius);
+        int[] stations;
+        int[] infeasible = null;
+        if (coverage > 1) {
+            TownGraph coverageGraph = radiusSolver == null ? graph : radiusSolver.getCoverageGraph();
+            KCoverageFireStationSolver solver = new KCoverageFireStationSolver(coverageGraph, coverage);
+            String options = "k-coverage k=" + coverage + (radius < 0 ? "" : " radius=" + radius);
+            stations = cache == null ? null : cache.get(cacheSource, graph, options);
+            if (stations == null) {
+                stations = solver.solveIndices();
+                if (cache != null) {
+                    cache.put(cacheSource, graph, options, stations);
+                }
+            }
+            infeasible = solver.getInfeasibleTowns();
+        } else if (searchMillis >= 0) {
+            // local search runs on whichever graph says which towns a station covers; its answer
+            // depends on timing, so it is not cached
+            TownGraph coverageGraph = radiusSolver == null ? graph : radiusSolver.getCoverageGraph();
+            stations = new LocalSearchFireStationSolver(coverageGraph).solve(searchMillis).getStations();
+        } else if (radiusSolver != null) {
+            String options = "coverage radius=" + radius;
+            stations = cache == null ? null : cache.get(cacheSource, graph, options);
+            if (stations == null) {
+                stations = radiusSolver.solveIndices();
+                if (cache != null) {
+                    cache.put(cacheSource, graph, options, stations);
+                }
+            }
+        } else {
+            FireStationSolver solver = new FireStationSolver(graph);
+            solver.setCache(cache, cacheSource);
+            stations = solver.solveIndices();
+        }
+        long solved = System.nanoTime();
+        long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        FireStationLowerBound.Result bound = null;
+        if (boundMillis >= 0) {
+            TownGraph coverageGraph = radiusSolver == null ? graph : radiusSolver.getCoverageGraph();
+            bound = new FireStationLowerBound(coverageGraph).certify(stations, boundMillis);
+        }
+        String[] stationNames = names(graph, stations);
+        writeResult(file, graph.getTownCount(), graph.getEdgeCount(), stationNames,
+                infeasible == null ? null : names(graph, infeasible), bound, (read - start) / 1e6, (solved - read) / 1e6,
+                allocated);
+    }
+
+    private void solveMapped(Path file, long allocatedBefore) throws IOException {
+        long start = System.nanoTime();
+        boolean converted = !file.toString().endsWith(SNAPSHOT_SUFFIX);
+        Path snapshot = file;
+        if (converted) {
+            snapshot = Files.createTempFile(file.getFileName().toString(), SNAPSHOT_SUFFIX);
+        }
+        try {
+            if (converted) {
+                TownMapConverter.convert(file.toFile(), snapshot.toFile());
+            }
+            try (OutOfCoreFireStationSolver solver = new OutOfCoreFireStationSolver(snapshot.toFile())) {
+                long read = System.nanoTime();
+                int[] stations = solver.solveIndices();
+                long solved = System.nanoTime();
+                long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+                String[] stationNames = new String[stations.length];
+                for (int i = 0; i < stations.length; i++) {
+                    stationNames[i] = solver.getName(stations[i]);
+                }
+                writeResult(file, solver.getTownCount(), solver.getEdgeCount(), stationNames, null, null,
+                        (read - start) / 1e6, (solved - read) / 1e6, allocated);
+            }
+        } finally {
+            if (converted) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+    }
+
+    /**
+     * @return the file's path, modified time and size, which stand for its map in the cache's
+     *         memory without hashing the map
+     */
+    private static String cacheSource(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return file.toAbsolutePath() + " " + attributes.lastModifiedTime() + " " + attributes.size();
+    }
+
+    /**
+     * @return the bytes this thread has allocated so far, or -1 if the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static String[] names(TownGraph graph, int[] towns) {
+        String[] names = new String[towns.length];
+        for (int i = 0; i < towns.length; i++) {
+            names[i] = graph.getName(towns[i]);
+        }
+        return names;
+    }
+
+    /**
+     * @param infeasible the towns that cannot get as many stations as they need, or null if
+     *        every town needs only one
+     * @param bound the proven lower bound on the station count, or null if none was asked for
+     */
+    private void writeResult(Path file, int townCount, int edgeCount, String[] stations, String[] infeasible,
+            FireStationLowerBound.Result bound, double readMillis, double solveMillis, long allocated) {
+        StringBuilder line = new StringBuilder();
+        if (csv) {
+            line.append(csvField(file.toString())).append(',').append(townCount).append(',')
+                    .append(edgeCount).append(',').append(stations.length).append(',')
+                    .append(String.format(Locale.ROOT, "%.3f,%.3f,", readMillis, solveMillis))
+                    .append(allocated).append(',')
+                    .append(csvField(String.join(" ", stations))).append(',');
+            if (infeasible != null) {
+                line.append(csvField(String.join(" ", infeasible))).append(',');
+            }
+            if (bound != null) {
+                line.append(bound.getLowerBound()).append(',')
+                        .append(String.format(Locale.ROOT, "%.4f,", bound.getRatio()));
+            }
+        } else {
+            line.append("{\"file\": ").append(jsonString(file.toString()))
+                    .append(", \"towns\": ").append(townCount)
+                    .append(", \"edges\": ").append(edgeCount)
+                    .append(", \"stationCount\": ").append(stations.length)
+                    .append(String.format(Locale.ROOT, ", \"readMillis\": %.3f, \"solveMillis\": %.3f",
+                            readMillis, solveMillis))
+                    .append(", \"allocatedBytes\": ").append(allocated)
+                    .append(", \"stations\": [");
+            appendJsonStrings(line, stations);
+            if (infeasible != null) {
+                line.append("], \"infeasibleTowns\": [");
+                appendJsonStrings(line, infeasible);
+            }
+            line.append(']');
+            if (bound != null) {
+                line.append(", \"lowerBound\": ").append(bound.getLowerBound())
+                        .append(String.format(Locale.ROOT, ", \"optimalityRatio\": %.4f", bound.getRatio()));
+            }
+            line.append('}');
+        }
+        writeLine(line.toString());
+    }
+
+    private void writeError(Path file, String message) {
+        if (csv) {
+            // one empty field for every column but the file and the error
+            int emptyFields = 7 + (coverage > 1 ? 1 : 0) + (boundMillis >= 0 ? 2 : 0);
+            writeLine(csvField(file.toString()) + ",".repeat(emptyFields + 1) + csvField(message));
+        } else {
+            writeLine("{\"file\": " + jsonString(file.toString()) + ", \"error\": " + jsonString(message) + "}");
+        }
+    }
+
+    private static void appendJsonStrings(StringBuilder line, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            line.append(i == 0 ? "" : ", ").append(jsonString(values[i]));
+        }
+    }
+
+    private synchronized void writeLine(String line) {
+        output.println(line);
+        output.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.append('"').toString();
+    }
+}
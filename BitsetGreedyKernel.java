@@ -0,0 +1,126 @@
+/*
+ * [BitsetGreedyKernel.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * The greedy pass of FireStationSolver with neighbour rows and uncovered towns as bitsets,
+ * recounting a queued score only once it reaches the top of the queue.
+ */
+
+import java.util.Arrays;
+
+public class BitsetGreedyKernel {
+    private final int townCount;
+    private final int[] rowStart; // row i is words rowStart[i] up to rowStart[i + 1]
+    private final int[] wordIndex;
+    private final long[] wordBits;
+
+    public BitsetGreedyKernel(TownGraph graph) {
+        townCount = graph.getTownCount();
+        int[] offsets = graph.offsets();
+        int[] neighbours = graph.neighbours();
+
+        // rows are sorted, so neighbours sharing a word are next to each other
+        rowStart = new int[townCount + 1];
+        int words = 0;
+        for (int i = 0; i < townCount; i++) {
+            rowStart[i] = words;
+            int lastWord = -1;
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                if (neighbours[j] >>> 6 != lastWord) {
+                    lastWord = neighbours[j] >>> 6;
+                    words++;
+                }
+            }
+        }
+        rowStart[townCount] = words;
+
+        wordIndex = new int[words];
+        wordBits = new long[words];
+        int write = -1;
+        for (int i = 0; i < townCount; i++) {
+            int lastWord = -1;
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                int word = neighbours[j] >>> 6;
+                if (word != lastWord) {
+                    lastWord = word;
+                    wordIndex[++write] = word;
+                }
+                wordBits[write] |= 1L << neighbours[j];
+            }
+        }
+    }
+
+    /**
+     * @return the number of 64-bit words the rows take up, each beside an int word index
+     */
+    public int getWordCount() {
+        return wordBits.length;
+    }
+
+    /**
+     * Places the same stations in the same order as FireStationSolver.solveIndices.
+     * @param placementScores filled with the score of each placed station; may be null
+     * @param progressListener told how the pass is going; may be null
+     */
+    public int[] solve(int[] placementScores, FireStationSolver.ProgressListener progressListener) {
+        long[] uncoveredBits = new long[(townCount + 63) >>> 6];
+        Arrays.fill(uncoveredBits, -1L);
+        if ((townCount & 63) != 0) {
+            uncoveredBits[uncoveredBits.length - 1] = (1L << townCount) - 1;
+        }
+
+        ScoreQueue queue = new ScoreQueue(townCount);
+        for (int i = 0; i < townCount; i++) {
+            int degree = 0;
+            for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+                degree += Long.bitCount(wordBits[k]);
+            }
+            queue.push(i, degree);
+        }
+
+        int[] stations = new int[townCount];
+        int stationCount = 0;
+        int uncovered = townCount;
+        SolverMetrics.recordUncovered(uncovered);
+        long evaluations = townCount;
+        while (uncovered > 0) {
+            int station = queue.peekTown();
+            int queuedScore = queue.peekScore();
+            queue.pop();
+            if ((uncoveredBits[station >>> 6] & (1L << station)) == 0) {
+                continue;
+            }
+            int score = score(station, uncoveredBits);
+            evaluations++;
+            // scores never go up, so a stale one is too high and a matching one is the queue pass's pick
+            if (score != queuedScore) {
+                queue.push(station, score);
+                continue;
+            }
+
+            if (placementScores != null) {
+                placementScores[stationCount] = score;
+            }
+            stations[stationCount++] = station;
+
+            // the station covers itself and every neighbour
+            uncoveredBits[station >>> 6] &= ~(1L << station);
+            uncovered -= score + 1;
+            for (int k = rowStart[station]; k < rowStart[station + 1]; k++) {
+                uncoveredBits[wordIndex[k]] &= ~wordBits[k];
+            }
+
+            FireStationSolver.reportProgress(progressListener, stationCount, uncovered);
+        }
+        SolverMetrics.add(SolverMetrics.Counter.SCORE_EVALUATIONS, evaluations);
+        return Arrays.copyOf(stations, stationCount);
+    }
+
+    private int score(int town, long[] uncoveredBits) {
+        int score = 0;
+        for (int k = rowStart[town]; k < rowStart[town + 1]; k++) {
+            score += Long.bitCount(wordBits[k] & uncoveredBits[wordIndex[k]]);
+        }
+        return score;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * [CoverageFireStationSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Places stations so that every town is within a travel distance of one, by running the greedy
+ * solver on a coverage graph built once with Dijkstra searches that stop at the radius.
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class CoverageFireStationSolver {
+    /**
+     * Roads are as long as the straight line between the origins of their towns.
+     */
+    public static final RoadLength EUCLIDEAN = (graph, town1, town2) ->
+            Math.hypot(graph.getX(town1) - graph.getX(town2), graph.getY(town1) - graph.getY(town2));
+
+    /**
+     * Every road has length one, so a radius of n covers towns up to n roads away.
+     */
+    public static final RoadLength HOPS = (graph, town1, town2) -> 1;
+
+    private Map<Town, Set<Town>> townsMap;
+    private final TownGraph graph;
+    private final double radius;
+    private final RoadLength roadLength;
+    private TownGraph coverageGraph;
+
+    /**
+     * The length of the road between two neighbouring towns of a graph. Must be the same in
+     * both directions and never negative.
+     */
+    public interface RoadLength {
+        double length(TownGraph graph, int town1, int town2);
+    }
+
+    public CoverageFireStationSolver(Map<Town, Set<Town>> townsMap, double radius) {
+        this(TownGraph.fromMap(townsMap), radius, EUCLIDEAN);
+        this.townsMap = townsMap;
+    }
+
+    public CoverageFireStationSolver(TownGraph graph, double radius) {
+        this(graph, radius, EUCLIDEAN);
+    }
+
+    public CoverageFireStationSolver(TownGraph graph, double radius, RoadLength roadLength) {
+        this.graph = graph;
+        this.radius = radius;
+        this.roadLength = roadLength;
+    }
+
+    public Map<Town, Set<Town>> getTownsMap() {
+        if (townsMap == null) {
+            townsMap = graph.toMap();
+        }
+        return townsMap;
+    }
+
+    public TownGraph getGraph() {
+        return graph;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Works out, once, which towns each town covers. The work and memory grow with the size of
+     * the coverage areas rather than with the square of the number of towns.
+     * @return a graph with the same towns, where two towns are neighbours if the shortest
+     *         route between them is no longer than the radius
+     */
+    public TownGraph getCoverageGraph() {
+        if (coverageGraph == null) {
+            coverageGraph = buildCoverageGraph();
+        }
+        return coverageGraph;
+    }
+
+    /**
+     * Solves the map and hands back the stations as Town objects from getTownsMap().
+     * @return the chosen stations, in the order they were placed
+     */
+    public Set<Town> solve() {
+        // graph indices follow name order, so a name-sorted array lines up with them
+        Town[] towns = getTownsMap().keySet().toArray(new Town[0]);
+        Arrays.sort(towns, Comparator.comparing(Town::getName));
+
+        Set<Town> stationSet = new LinkedHashSet<>();
+        for (int station : solveIndices()) {
+            stationSet.add(towns[station]);
+        }
+        return stationSet;
+    }
+
+    /**
+     * Greedily places stations on the coverage graph, with the same scoring and tie-break as
+     * FireStationSolver.
+     * @return the graph indices of the chosen stations, in the order they were placed
+     */
+    public int[] solveIndices() {
+        return new FireStationSolver(getCoverageGraph()).solveIndices();
+    }
+
+    /**
+     * Runs one Dijkstra search from all the stations at once, stopping at the radius.
+     * @return the distance from each town to its nearest station, or infinity for towns no
+     *         station is within the radius of
+     */
+    public double[] distancesToStations(int[] stations) {
+        DistanceSearch search = new DistanceSearch(graph.getTownCount());
+        for (int station : stations) {
+            search.reach(station, 0);
+        }
+        search.run(graph, roadLength, radius);
+        return search.distance.clone();
+    }
+
+    private TownGraph buildCoverageGraph() {
+        int townCount = graph.getTownCount();
+        DistanceSearch search = new DistanceSearch(townCount);
+
+        // search from every town, keeping only the covered towns with a higher index so each
+        // pair is found once and the result is symmetric even if rounding differs by direction
+        int[][] higher = new int[townCount][];
+        int[] degree = new int[townCount];
+        for (int town = 0; town < townCount; town++) {
+            search.reach(town, 0);
+            search.run(graph, roadLength, radius);
+            int count = 0;
+            for (int i = 0; i < search.reachedCount; i++) {
+                if (search.reached[i] > town) {
+                    count++;
+                }
+            }
+            int[] row = new int[count];
+            count = 0;
+            for (int i = 0; i < search.reachedCount; i++) {
+                if (search.reached[i] > town) {
+                    row[count++] = search.reached[i];
+                }
+            }
+            Arrays.sort(row);
+            higher[town] = row;
+            degree[town] += row.length;
+            for (int covered : row) {
+                degree[covered]++;
+            }
+            search.reset();
+        }
+
+        // each row is the lower covered towns, in the ascending order they are met here,
+        // followed by the sorted higher ones
+        int[] offsets = new int[townCount + 1];
+        for (int town = 0; town < townCount; town++) {
+            offsets[town + 1] = offsets[town] + degree[town];
+        }
+        int[] neighbours = new int[offsets[townCount]];
+        int[] fill = Arrays.copyOf(offsets, townCount);
+        for (int town = 0; town < townCount; town++) {
+            for (int covered : higher[town]) {
+                neighbours[fill[covered]++] = town;
+            }
+            System.arraycopy(higher[town], 0, neighbours, offsets[town + 1] - higher[town].length, higher[town].length);
+            higher[town] = null;
+        }
+
+        String[] names = new String[townCount];
+        int[] xCoords = new int[townCount];
+        int[] yCoords = new int[townCount];
+        for (int town = 0; town < townCount; town++) {
+            names[town] = graph.getName(town);
+            xCoords[town] = graph.getX(town);
+            yCoords[town] = graph.getY(town);
+        }
+        return TownGraph.fromArrays(names, xCoords, yCoords, offsets, neighbours);
+    }
+
+    /**
+     * A Dijkstra search that stops at a distance limit. Its arrays are kept between searches
+     * and only the towns a search reached are reset, so a search costs as much as the area
+     * it covers rather than the whole map.
+     */
+    private static class DistanceSearch {
+        private final double[] distance;
+        private final int[] reached;
+        private int reachedCount;
+
+        // binary min-heap of (distance, town); a town can be in it more than once, and
+        // entries further than its current distance are skipped when popped
+        private double[] heapDistance = new double[16];
+        private int[] heapTown = new int[16];
+        private int heapSize;
+
+        DistanceSearch(int townCount) {
+            distance = new double[townCount];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            reached = new int[townCount];
+        }
+
+        void reach(int town, double townDistance) {
+            if (distance[town] == Double.POSITIVE_INFINITY) {
+                reached[reachedCount++] = town;
+            }
+            distance[town] = townDistance;
+            push(townDistance, town);
+        }
+
+        void run(TownGraph graph, RoadLength roadLength, double limit) {
+            int[] offsets = graph.offsets();
+            int[] neighbours = graph.neighbours();
+            while (heapSize > 0) {
+                double townDistance = heapDistance[0];
+                int town = heapTown[0];
+                pop();
+                if (townDistance > distance[town]) {
+                    continue;
+                }
+                for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                    int neighbour = neighbours[i];
+                    double neighbourDistance = townDistance + roadLength.length(graph, town, neighbour);
+                    if (neighbourDistance <= limit && neighbourDistance < distance[neighbour]) {
+                        reach(neighbour, neighbourDistance);
+                    }
+                }
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < reachedCount; i++) {
+                distance[reached[i]] = Double.POSITIVE_INFINITY;
+            }
+            reachedCount = 0;
+        }
+
+        private void push(double entryDistance, int town) {
+            if (heapSize == heapTown.length) {
+                heapDistance = Arrays.copyOf(heapDistance, heapSize * 2);
+                heapTown = Arrays.copyOf(heapTown, heapSize * 2);
+            }
+            int child = heapSize++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (heapDistance[parent] <= entryDistance) {
+                    break;
+                }
+                heapDistance[child] = heapDistance[parent];
+                heapTown[child] = heapTown[parent];
+                child = parent;
+            }
+            heapDistance[child] = entryDistance;
+            heapTown[child] = town;
+        }
+
+        private void pop() {
+            double lastDistance = heapDistance[--heapSize];
+            int lastTown = heapTown[heapSize];
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heapDistance[child + 1] < heapDistance[child]) {
+                    child++;
+                }
+                if (heapDistance[child] >= lastDistance) {
+                    break;
+                }
+                heapDistance[parent] = heapDistance[child];
+                heapTown[parent] = heapTown[child];
+                parent = child;
+            }
+            heapDistance[parent] = lastDistance;
+            heapTown[parent] = lastTown;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * [ExactFireStationSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * A branch-and-bound solver that proves the fewest stations for sparse maps of up to a few hundred
+ * towns, or returns its best answer and a proven lower bound when the time budget runs out.
+ */
+
+import java.util.Arrays;
+
+public class ExactFireStationSolver {
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    private static final double EPSILON = 1e-9;
+
+    private final TownGraph graph;
+
+    // the component currently being searched
+    private int townCount;
+    private int[] offsets;
+    private int[] neighbours;
+
+    // search state, all undone on the way back up so nothing is allocated per node
+    private int[] dominatedBy; // number of chosen stations in the closed neighbourhood of each town
+    private int[] gain; // number of undominated towns in the closed neighbourhood of each town
+    private int[] candidates; // number of allowed stations in the closed neighbourhood of each town
+    private long[] undominated;
+    private long[] allowed;
+    private int undominatedCount;
+    private int[] chosen;
+    private int chosenCount;
+    private int[] best;
+    private int bestCount;
+    private int[] branchStack;
+    private int branchTop;
+    private int[] claimed; // stamped with the packing bound pass that claimed the town
+    private int stamp;
+
+    private long deadline;
+    private boolean timedOut;
+    private long nodeCount;
+
+    public ExactFireStationSolver(TownGraph graph) {
+        this.graph = graph;
+    }
+
+    public TownGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Searches for a minimum set of stations, one connected component at a time, smallest
+     * first. The greedy answer after local search is the starting upper bound of every
+     * component, so even an immediate timeout returns a valid station set, and a tenth of the
+     * time left goes to FireStationLowerBound for the component's starting lower bound.
+     * @param timeLimitMillis the wall-clock budget, or Long.MAX_VALUE for no limit
+     * @return the best stations found and how far they can be from optimal
+     */
+    public Result solve(long timeLimitMillis) {
+        long start = System.nanoTime();
+        deadline = timeLimitMillis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : start + timeLimitMillis * 1_000_000;
+        timedOut = false;
+        nodeCount = 0;
+
+        int[][] components = graph.components();
+        Arrays.sort(components, (a, b) -> Integer.compare(a.length, b.length));
+
+        int[] stations = new int[graph.getTownCount()];
+        int stationCount = 0;
+        int lowerBound = 0;
+        for (int[] component : components) {
+            lowerBound += solveComponent(graph.subgraph(component));
+            for (int i = 0; i < bestCount; i++) {
+                stations[stationCount++] = component[best[i]];
+            }
+        }
+
+        stations = Arrays.copyOf(stations, stationCount);
+        Arrays.sort(stations);
+        return new Result(stations, lowerBound, nodeCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Runs the search on one connected component, leaving its best answer in best.
+     * @return the proven lower bound for the component
+     */
+    private int solveComponent(TownGraph component) {
+        townCount = component.getTownCount();
+        offsets = component.offsets();
+        neighbours = component.neighbours();
+
+        int words = (townCount + 63) >>> 6;
+        dominatedBy = new int[townCount];
+        gain = new int[townCount];
+        candidates = new int[townCount];
+        undominated = new long[words];
+        allowed = new long[words];
+        chosen = new int[townCount];
+        chosenCount = 0;
+        branchStack = new int[Math.max(16, component.getMaxDegree() + 1)];
+        claimed = new int[townCount];
+        branchTop = 0;
+        for (int i = 0; i < townCount; i++) {
+            gain[i] = component.degree(i) + 1;
+            candidates[i] = component.degree(i) + 1;
+            undominated[i >>> 6] |= 1L << i;
+            allowed[i >>> 6] |= 1L << i;
+        }
+        undominatedCount = townCount;
+
+        best = new LocalSearchFireStationSolver(component).improve(new FireStationSolver(component).solveIndices());
+        bestCount = best.length;
+
+        reduce();
+        int lowerBound = chosenCount + (int) Math.ceil(fractionalBound() - EPSILON);
+        if (lowerBound < bestCount) {
+            // the fractional bound of the whole component, given a tenth of the time left
+            long boundMillis = deadline == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : Math.max(0, (deadline - System.nanoTime()) / 10_000_000);
+            lowerBound = Math.max(lowerBound, new FireStationLowerBound(component).certify(best, boundMillis).getLowerBound());
+        }
+
+        if (lowerBound < bestCount && !timedOut) {
+            search();
+        }
+        if (!timedOut) {
+            return bestCount;
+        }
+        return Math.min(lowerBound, bestCount);
+    }
+
+    /**
+     * Applies the reductions that keep at least one optimal answer reachable:
+     * an isolated town must be a station, the neighbour of a leaf town can always be a station
+     * in place of the leaf, and a town whose closed neighbourhood is contained in a neighbour's
+     * never needs to be a station.
+     */
+    private void reduce() {
+        for (int town = 0; town < townCount; town++) {
+            if (!isUndominated(town)) {
+                continue;
+            }
+            if (degree(town) == 0) {
+                choose(town);
+            } else if (degree(town) == 1) {
+                choose(neighbours[offsets[town]]);
+            }
+        }
+
+        for (int town = 0; town < townCount; town++) {
+            for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                int other = neighbours[i];
+                if (isSubsetOfClosedNeighbourhood(town, other)
+                        && (degree(town) < degree(other) || other < town)) {
+                    forbid(town);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void search() {
+        nodeCount++;
+        if (nodeCount % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        if (timedOut) {
+            return;
+        }
+
+        if (undominatedCount == 0) {
+            if (chosenCount < bestCount) {
+                System.arraycopy(chosen, 0, best, 0, chosenCount);
+                bestCount = chosenCount;
+            }
+            return;
+        }
+        if (chosenCount + 1 >= bestCount) {
+            return;
+        }
+
+        // find the undominated town with the fewest ways to cover it while summing the bound
+        int branchTown = -1;
+        double bound = 0;
+        for (int word = 0; word < undominated.length; word++) {
+            long bits = undominated[word];
+            while (bits != 0) {
+                int town = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (candidates[town] == 0) {
+                    return;
+                }
+                int maxGain = 0;
+                if (isAllowed(town)) {
+                    maxGain = gain[town];
+                }
+                for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                    int neighbour = neighbours[i];
+                    if (isAllowed(neighbour) && gain[neighbour] > maxGain) {
+                        maxGain = gain[neighbour];
+                    }
+                }
+                bound += 1.0 / maxGain;
+                if (branchTown == -1 || candidates[town] < candidates[branchTown]) {
+                    branchTown = town;
+                }
+            }
+        }
+        if (chosenCount + (int) Math.ceil(bound - EPSILON) >= bestCount) {
+            return;
+        }
+        if (chosenCount + packingBound() >= bestCount) {
+            return;
+        }
+
+        // push the ways to cover the branch town, best gain first
+        int frameStart = branchTop;
+        pushCandidate(branchTown, frameStart);
+        for (int i = offsets[branchTown]; i < offsets[branchTown + 1]; i++) {
+            pushCandidate(neighbours[i], frameStart);
+        }
+        int frameEnd = branchTop;
+
+        // each branch takes one candidate and forbids the ones tried before it
+        int forbidden = frameStart;
+        for (int i = frameStart; i < frameEnd && !timedOut && chosenCount + 1 < bestCount; i++) {
+            int station = branchStack[i];
+            choose(station);
+            search();
+            unchoose(station);
+            forbid(station);
+            forbidden++;
+        }
+        for (int i = frameStart; i < forbidden; i++) {
+            allow(branchStack[i]);
+        }
+        branchTop = frameStart;
+    }
+
+    private void pushCandidate(int town, int frameStart) {
+        if (!isAllowed(town)) {
+            return;
+        }
+        if (branchTop == branchStack.length) {
+            branchStack = Arrays.copyOf(branchStack, branchStack.length * 2);
+        }
+        // insertion sort by descending gain; frames are small
+        int position = branchTop++;
+        while (position > frameStart && gain[branchStack[position - 1]] < gain[town]) {
+            branchStack[position] = branchStack[position - 1];
+            position--;
+        }
+        branchStack[position] = town;
+    }
+
+    /**
+     * Counts undominated towns, those with one or two candidates first, that share no
+     * candidate with a town counted before them; each needs a station of its own.
+     */
+    private int packingBound() {
+        stamp++;
+        int packed = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int word = 0; word < undominated.length; word++) {
+                long bits = undominated[word];
+                while (bits != 0) {
+                    int town = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if ((candidates[town] <= 2) == (pass == 0) && isUnclaimed(town)) {
+                        packed++;
+                        claim(town);
+                    }
+                }
+            }
+        }
+        return packed;
+    }
+
+    private boolean isUnclaimed(int town) {
+        if (isAllowed(town) && claimed[town] == stamp) {
+            return false;
+        }
+        for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+            if (isAllowed(neighbours[i]) && claimed[neighbours[i]] == stamp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void claim(int town) {
+        claimed[town] = stamp;
+        for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+            claimed[neighbours[i]] = stamp;
+        }
+    }
+
+    private double fractionalBound() {
+        double bound = 0;
+        for (int town = 0; town < townCount; town++) {
+            if (!isUndominated(town)) {
+                continue;
+            }
+            int maxGain = isAllowed(town) ? gain[town] : 0;
+            for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                if (isAllowed(neighbours[i])) {
+                    maxGain = Math.max(maxGain, gain[neighbours[i]]);
+                }
+            }
+            bound += 1.0 / maxGain;
+        }
+        return bound;
+    }
+
+    private boolean isSubsetOfClosedNeighbourhood(int town, int other) {
+        // town and other are adjacent, so only the open neighbours of town (other than
+        // other itself) need to appear among the neighbours of other
+        int j = offsets[other];
+        int end = offsets[other + 1];
+        for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+            int neighbour = neighbours[i];
+            if (neighbour == other) {
+                continue;
+            }
+            while (j < end && neighbours[j] < neighbour) {
+                j++;
+            }
+            if (j == end || neighbours[j] != neighbour) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void choose(int station) {
+        chosen[chosenCount++] = station;
+        dominate(station);
+        for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+            dominate(neighbours[i]);
+        }
+    }
+
+    private void unchoose(int station) {
+        chosenCount--;
+        undominate(station);
+        for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+            undominate(neighbours[i]);
+        }
+    }
+
+    private void dominate(int town) {
+        if (dominatedBy[town]++ > 0) {
+            return;
+        }
+        undominated[town >>> 6] &= ~(1L << town);
+        undominatedCount--;
+        gain[town]--;
+        for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+            gain[neighbours[i]]--;
+        }
+    }
+
+    private void undominate(int town) {
+        if (--dominatedBy[town] > 0) {
+            return;
+        }
+        undominated[town >>> 6] |= 1L << town;
+        undominatedCount++;
+        gain[town]++;
+        for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+            gain[neighbours[i]]++;
+        }
+    }
+
+    private void forbid(int station) {
+        allowed[station >>> 6] &= ~(1L << station);
+        candidates[station]--;
+        for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+            candidates[neighbours[i]]--;
+        }
+    }
+
+    private void allow(int station) {
+        allowed[station >>> 6] |= 1L << station;
+        candidates[station]++;
+        for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+            candidates[neighbours[i]]++;
+        }
+    }
+
+    private int degree(int town) {
+        return offsets[town + 1] - offsets[town];
+    }
+
+    private boolean isUndominated(int town) {
+        return (undominated[town >>> 6] & (1L << town)) != 0;
+    }
+
+    private boolean isAllowed(int town) {
+        return (allowed[town >>> 6] & (1L << town)) != 0;
+    }
+
+    /**
+     * The outcome of an exact solve. When the search finished inside its budget the
+     * lower bound equals the station count and the answer is optimal.
+     */
+    public static class Result {
+        private final int[] stations;
+        private final int lowerBound;
+        private final long nodeCount;
+        private final long elapsedMillis;
+
+        public Result(int[] stations, int lowerBound, long nodeCount, long elapsedMillis) {
+            this.stations = stations;
+            this.lowerBound = lowerBound;
+            this.nodeCount = nodeCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int[] getStations() {
+            return stations;
+        }
+
+        public int getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * @return how many more stations than the optimum this answer can at most have
+         */
+        public int getGap() {
+            return stations.length - lowerBound;
+        }
+
+        public boolean isOptimal() {
+            return getGap() == 0;
+        }
+
+        public long getNodeCount() {
+            return nodeCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
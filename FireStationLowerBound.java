@@ -0,0 +1,347 @@
+/*
+ * [FireStationLowerBound.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Proves how few stations a map could possibly need, from town weights no closed neighbourhood
+ * of which sums past one and from a packing of towns whose neighbourhoods share no town.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class FireStationLowerBound {
+    // towns handled by one task of a parallel pass
+    private static final int CHUNK_TOWNS = 16384;
+    private static final int MAX_ROUNDS = 1000;
+    // how sharply crowded neighbourhoods are penalised at first and at most; the penalty is
+    // doubled after this many rounds without the bound growing by a hundredth of a percent
+    private static final double INITIAL_SHARPNESS = 40;
+    private static final double MAX_SHARPNESS = 320;
+    private static final int STALL_ROUNDS = 10;
+    private static final double MIN_PROGRESS = 1e-4;
+    // the largest factor a weight changes by in one round
+    private static final double STEP = 0.2;
+    // shrinks the certificate enough that rounding in the sums can never make it overweight
+    private static final double SAFETY = 1 - 1e-6;
+    private static final double EPSILON = 1e-9;
+
+    private final TownGraph graph;
+    private final ForkJoinPool pool;
+
+    public FireStationLowerBound(TownGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public FireStationLowerBound(TownGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    public TownGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Solves the map with FireStationSolver and bounds how far its answer can be from the optimum.
+     * @param timeLimitMillis the wall-clock budget for the bound, not counting the greedy pass
+     */
+    public Result certify(long timeLimitMillis) {
+        return certify(new FireStationSolver(graph).solveIndices(), timeLimitMillis);
+    }
+
+    /**
+     * Improves the fractional bound round by round until the time runs out, the rounds stop making
+     * progress or the bound reaches the number of stations.
+     * @param stations graph indices of the answer to compare against the bound
+     * @param timeLimitMillis the wall-clock budget; the packing bound and the first round are
+     *        always worked out, even if it runs out immediately
+     */
+    public Result certify(int[] stations, long timeLimitMillis) {
+        long start = System.nanoTime();
+        long deadline = timeLimitMillis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE
+                : start + timeLimitMillis * 1_000_000;
+        SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.BOUND);
+        int packingBound = packingBound();
+
+        Rounds rounds = new Rounds();
+        double best = rounds.scale();
+        double[] certificate = rounds.weights.clone();
+        double sharpness = INITIAL_SHARPNESS;
+        int stalled = 0;
+        int round = 0;
+        while (round < MAX_ROUNDS && System.nanoTime() < deadline
+                && Math.max(packingBound, wholeBound(best)) < stations.length) {
+            rounds.update(sharpness);
+            round++;
+            double bound = rounds.scale();
+            if (bound > best * (1 + MIN_PROGRESS)) {
+                stalled = 0;
+            } else if (++stalled == STALL_ROUNDS) {
+                if (sharpness >= MAX_SHARPNESS) {
+                    break;
+                }
+                sharpness *= 2;
+                stalled = 0;
+            }
+            if (bound > best) {
+                best = bound;
+                System.arraycopy(rounds.weights, 0, certificate, 0, certificate.length);
+            }
+        }
+        for (int town = 0; town < certificate.length; town++) {
+            certificate[town] *= SAFETY;
+        }
+        SolverMetrics.endPhase(timer);
+
+        return new Result(stations, best * SAFETY, packingBound, certificate, round,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Picks towns from the least connected up, skipping any whose neighbourhood shares a town
+     * with one already picked.
+     * @return the number of towns picked, each of which needs a station of its own
+     */
+    public int packingBound() {
+        int townCount = graph.getTownCount();
+        int[] offsets = graph.offsets();
+        int[] neighbours = graph.neighbours();
+
+        // counting sort by degree, ties in index order
+        int maxDegree = 0;
+        for (int town = 0; town < townCount; town++) {
+            maxDegree = Math.max(maxDegree, graph.degree(town));
+        }
+        int[] start = new int[maxDegree + 2];
+        for (int town = 0; town < townCount; town++) {
+            start[graph.degree(town) + 1]++;
+        }
+        for (int degree = 0; degree <= maxDegree; degree++) {
+            start[degree + 1] += start[degree];
+        }
+        int[] order = new int[townCount];
+        for (int town = 0; town < townCount; town++) {
+            order[start[graph.degree(town)]++] = town;
+        }
+
+        boolean[] claimed = new boolean[townCount];
+        int packed = 0;
+        for (int town : order) {
+            boolean free = !claimed[town];
+            for (int i = offsets[town]; i < offsets[town + 1] && free; i++) {
+                free = !claimed[neighbours[i]];
+            }
+            if (!free) {
+                continue;
+            }
+            packed++;
+            claimed[town] = true;
+            for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                claimed[neighbours[i]] = true;
+            }
+        }
+        return packed;
+    }
+
+    private static int wholeBound(double fractionalBound) {
+        return (int) Math.ceil(fractionalBound - EPSILON);
+    }
+
+    /**
+     * The town weights and the parallel passes over them. Any station set needs at least the
+     * total weight, each round moves weight away from crowded neighbourhoods, and chunk sums are
+     * added in chunk order so the bound does not depend on the number of threads.
+     */
+    private class Rounds {
+        private final int townCount = graph.getTownCount();
+        private final int[] offsets = graph.offsets();
+        private final int[] neighbours = graph.neighbours();
+        private final double[] weights = new double[townCount];
+        // the weight of each town's closed neighbourhood, then its penalty
+        private final double[] loads = new double[townCount];
+        private final double[] sums = new double[(townCount + CHUNK_TOWNS - 1) / CHUNK_TOWNS];
+
+        Rounds() {
+            Arrays.fill(weights, 1);
+        }
+
+        /**
+         * Divides every weight by the heaviest neighbourhood it lies in, which leaves no
+         * neighbourhood weighing more than one.
+         * @return the total weight afterwards
+         */
+        double scale() {
+            run((from, to) -> {
+                for (int town = from; town < to; town++) {
+                    loads[town] = neighbourhoodSum(weights, town);
+                }
+                return 0;
+            });
+            return run((from, to) -> {
+                double sum = 0;
+                for (int town = from; town < to; town++) {
+                    double heaviest = loads[town];
+                    for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                        heaviest = Math.max(heaviest, loads[neighbours[i]]);
+                    }
+                    weights[town] /= heaviest;
+                    sum += weights[town];
+                }
+                return sum;
+            });
+        }
+
+        /**
+         * Grows the weight of towns whose neighbourhoods are, in total, lightly penalised and
+         * shrinks the rest.
+         */
+        void update(double sharpness) {
+            run((from, to) -> {
+                for (int town = from; town < to; town++) {
+                    loads[town] = Math.exp(sharpness * (neighbourhoodSum(weights, town) - 1));
+                }
+                return 0;
+            });
+            run((from, to) -> {
+                for (int town = from; town < to; town++) {
+                    double slack = 1 - neighbourhoodSum(loads, town);
+                    weights[town] *= Math.exp(STEP * Math.max(-1, Math.min(1, slack)));
+                }
+                return 0;
+            });
+        }
+
+        private double neighbourhoodSum(double[] values, int town) {
+            double sum = values[town];
+            for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                sum += values[neighbours[i]];
+            }
+            return sum;
+        }
+
+        /**
+         * Runs a pass over every chunk of towns, each writing only its own towns.
+         * @return the chunk results added up in chunk order
+         */
+        private double run(Pass pass) {
+            pool.invoke(new PassTask(pass, 0, sums.length));
+            double total = 0;
+            for (double sum : sums) {
+                total += sum;
+            }
+            return total;
+        }
+
+        private class PassTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Pass pass;
+            private final int fromChunk;
+            private final int toChunk;
+
+            PassTask(Pass pass, int fromChunk, int toChunk) {
+                this.pass = pass;
+                this.fromChunk = fromChunk;
+                this.toChunk = toChunk;
+            }
+
+            @Override
+            protected void compute() {
+                if (toChunk - fromChunk > 1) {
+                    int middle = (fromChunk + toChunk) >>> 1;
+                    invokeAll(new PassTask(pass, fromChunk, middle), new PassTask(pass, middle, toChunk));
+                    return;
+                }
+                for (int chunk = fromChunk; chunk < toChunk; chunk++) {
+                    sums[chunk] = pass.apply(chunk * CHUNK_TOWNS, Math.min(townCount, (chunk + 1) * CHUNK_TOWNS));
+                }
+            }
+        }
+    }
+
+    private interface Pass {
+        double apply(int from, int to);
+    }
+
+    /**
+     * An answer and the proof of how close it is to the optimum.
+     */
+    public static class Result {
+        private final int[] stations;
+        private final double fractionalBound;
+        private final int packingBound;
+        private final int lowerBound;
+        private final double[] certificate;
+        private final int rounds;
+        private final long elapsedMillis;
+
+        public Result(int[] stations, double fractionalBound, int packingBound, double[] certificate,
+                int rounds, long elapsedMillis) {
+            this.stations = stations;
+            this.fractionalBound = fractionalBound;
+            this.packingBound = packingBound;
+            this.lowerBound = Math.max(packingBound, wholeBound(fractionalBound));
+            this.certificate = certificate;
+            this.rounds = rounds;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int[] getStations() {
+            return stations;
+        }
+
+        /**
+         * @return the fewest stations any answer can have, the larger of the two bounds
+         */
+        public int getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * @return the total of the certificate's weights
+         */
+        public double getFractionalBound() {
+            return fractionalBound;
+        }
+
+        public int getPackingBound() {
+            return packingBound;
+        }
+
+        /**
+         * @return a weight for each town, by graph index, such that no town's closed neighbourhood
+         *         weighs more than one; it can be checked in one pass without trusting this class
+         */
+        public double[] getCertificate() {
+            return certificate;
+        }
+
+        /**
+         * @return how many more stations than the optimum this answer can at most have
+         */
+        public int getGap() {
+            return stations.length - lowerBound;
+        }
+
+        public boolean isOptimal() {
+            return getGap() == 0;
+        }
+
+        /**
+         * @return the station count over the lower bound, which the answer is at most this many
+         *         times the optimum by; 1 for a map without towns
+         */
+        public double getRatio() {
+            return lowerBound == 0 ? 1 : (double) stations.length / lowerBound;
+        }
+
+        public int getRounds() {
+            return rounds;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
@@ -5,58 +5,235 @@
  * The class containg the functionality and algorithm to solve the given problem
  */
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 public class FireStationSolver {
+    // progress is reported each time this many more stations have been placed
+    private static final int PROGRESS_INTERVAL = 256;
+    // AUTO uses the bitset kernel from this average degree up; it was at least as fast as the queue
+    // at every size and degree in bench/results/kernel-cutover.json, from degree 1 to 32
+    static final double BITSET_MIN_AVERAGE_DEGREE = 0;
+    static final String CACHE_OPTIONS = "greedy";
+
     private Map<Town, Set<Town>> townsMap;
+    private final TownGraph graph;
+    private ProgressListener progressListener;
+    private Kernel kernel = Kernel.AUTO;
+    private SolveCache cache;
+    private Object cacheSource;
+
+    /**
+     * How the greedy pass keeps track of scores. Every kernel places the same stations in the
+     * same order.
+     */
+    public enum Kernel {
+        /** BITSET for maps with an average degree of at least BITSET_MIN_AVERAGE_DEGREE, QUEUE otherwise */
+        AUTO,
+        /** lowers the score of each neighbour of every newly covered town */
+        QUEUE,
+        /** recounts stale scores with bitsets when they reach the top, see BitsetGreedyKernel */
+        BITSET
+    }
+
+    /**
+     * Told how a solve is going every few stations, from the thread running the solve.
+     */
+    public interface ProgressListener {
+        /**
+         * @return false to stop the solve, which then throws a CancellationException
+         */
+        boolean stationsPlaced(int stationCount, int uncoveredCount);
+    }
 
     public FireStationSolver(Map<Town, Set<Town>> townsMap) {
         this.townsMap = townsMap;
+        this.graph = TownGraph.fromMap(townsMap);
+    }
+
+    public FireStationSolver(TownGraph graph) {
+        this.graph = graph;
     }
 
     public Map<Town, Set<Town>> getTownsMap() {
+        if (townsMap == null) {
+            townsMap = graph.toMap();
+        }
         return townsMap;
     }
 
+    public TownGraph getGraph() {
+        return graph;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * @param progressListener told about each solve from now on; may be null
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public Kernel getKernel() {
+        return kernel;
+    }
+
+    public void setKernel(Kernel kernel) {
+        this.kernel = kernel;
+    }
+
+    public SolveCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param cache where solveIndices() looks for, and stores, the answer for this graph; may be null
+     * @param source stands for this graph in the cache's memory, see SolveCache.get
+     */
+    public void setCache(SolveCache cache, Object source) {
+        this.cache = cache;
+        this.cacheSource = source;
+    }
+
+    /**
+     * Solves the map and hands back the stations as Town objects from getTownsMap().
+     * @return the chosen stations, in the order they were placed
+     * @see #solveIndices()
+     */
     public Set<Town> solve() {
-        // create a copy of keyset
-        Set<Town> townSet = new HashSet<>();
-        townSet.addAll(townsMap.keySet());
-
-        // create a set to hold stations
-        Set<Town> stationSet = new HashSet<>();
-
-        // greedily choose the town with most unsatisfied neighbours as the next station 
-        while (!townSet.isEmpty()) {
-            Town greatestTown = new Town("-1");
-            int greatestScore = -1;
-
-            for (Town currentTown : townSet) {
-                int score = calculateScore(currentTown, townSet); // calculate score here
-                if (score > greatestScore) {
-                    greatestScore = score;
-                    greatestTown = currentTown;
-                }
+        // graph indices follow name order, so a name-sorted array lines up with them
+        Town[] towns = getTownsMap().keySet().toArray(new Town[0]);
+        Arrays.sort(towns, Comparator.comparing(Town::getName));
+
+        Set<Town> stationSet = new LinkedHashSet<>();
+        for (int station : solveIndices()) {
+            stationSet.add(towns[station]);
+        }
+        return stationSet;
+    }
+
+    /**
+     * Greedily places stations until every town is covered. The next station is always the
+     * uncovered town with the most uncovered neighbours; ties go to the lowest index, which is
+     * the town whose name comes first in String order, so the same map always gives the same answer.
+     * @return the graph indices of the chosen stations, in the order they were placed
+     */
+    public int[] solveIndices() {
+        if (cache == null) {
+            return solveIndices(null);
+        }
+        // every kernel, and the parallel solver, gives the same stations in the same order
+        int[] stations = cache.get(cacheSource, graph, CACHE_OPTIONS);
+        if (stations == null) {
+            stations = solveIndices(null);
+            cache.put(cacheSource, graph, CACHE_OPTIONS, stations);
+        }
+        return stations;
+    }
+
+    /**
+     * Same as solveIndices(), and also records the score each station had when it was placed.
+     * Scores never go up as the greedy pass runs, so the placement order is the stations
+     * sorted by descending score and then ascending index.
+     * @param placementScores filled with the score of each placed station, must have room for
+     *        one entry per town; may be null
+     * @throws CancellationException if the progress listener asked to stop
+     */
+    public int[] solveIndices(int[] placementScores) {
+        SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.SOLVE);
+        int townCount = graph.getTownCount();
+        int[] stations;
+        if (kernel == Kernel.BITSET || (kernel == Kernel.AUTO && townCount > 0
+                && 2.0 * graph.getEdgeCount() / townCount >= BITSET_MIN_AVERAGE_DEGREE)) {
+            stations = new BitsetGreedyKernel(graph).solve(placementScores, progressListener);
+        } else {
+            stations = solveWithQueue(placementScores);
+            // every town starts with a score and, once covered, lowers each neighbour's by one
+            SolverMetrics.add(SolverMetrics.Counter.SCORE_EVALUATIONS, townCount + 2L * graph.getEdgeCount());
+        }
+        SolverMetrics.endPhase(timer);
+        SolverMetrics.add(SolverMetrics.Counter.SOLVES, 1);
+        SolverMetrics.add(SolverMetrics.Counter.ITERATIONS, stations.length);
+        return stations;
+    }
+
+    private int[] solveWithQueue(int[] placementScores) {
+        int townCount = graph.getTownCount();
+
+        int[] offsets = graph.offsets();
+        int[] neighbours = graph.neighbours();
+
+        // a town's score is its number of uncovered neighbours
+        int[] score = new int[townCount];
+        boolean[] covered = new boolean[townCount];
+        ScoreQueue queue = new ScoreQueue(townCount);
+        for (int i = 0; i < townCount; i++) {
+            score[i] = graph.degree(i);
+            queue.push(i, score[i]);
+        }
+
+        // create an array to hold stations
+        int[] stations = new int[townCount];
+        int stationCount = 0;
+        int uncovered = townCount;
+        SolverMetrics.recordUncovered(uncovered);
+
+        while (uncovered > 0) {
+            // skip entries for towns that were covered or rescored since they were pushed
+            int station = queue.peekTown();
+            while (covered[station] || score[station] != queue.peekScore()) {
+                queue.pop();
+                station = queue.peekTown();
+            }
+            queue.pop();
+            if (placementScores != null) {
+                placementScores[stationCount] = score[station];
+            }
+            stations[stationCount++] = station;
+
+            // only towns within two hops of the new station can change score
+            uncovered -= cover(station, offsets, neighbours, covered, score, queue);
+            for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+                uncovered -= cover(neighbours[i], offsets, neighbours, covered, score, queue);
             }
 
-            townSet.remove(greatestTown);
-            Set<Town> neighbours = townsMap.get(greatestTown);
-            townSet.removeAll(neighbours);
-            stationSet.add(greatestTown);
+            reportProgress(progressListener, stationCount, uncovered);
         }
 
-        return stationSet;
+        return Arrays.copyOf(stations, stationCount);
     }
 
-    private int calculateScore(Town currentTown, Set<Town> townSet) {
-        int score = 0;
-        for (Town neighbour : townsMap.get(currentTown)) {
-            if (townSet.contains(neighbour)) {
-                score = score + 1;
+    /**
+     * Tells the listener, if there is one, how the pass is going every few stations and once
+     * the last town is covered.
+     * @throws CancellationException if the listener asked to stop
+     */
+    static void reportProgress(ProgressListener progressListener, int stationCount, int uncoveredCount) {
+        if (progressListener != null && (stationCount % PROGRESS_INTERVAL == 0 || uncoveredCount == 0)
+                && !progressListener.stationsPlaced(stationCount, uncoveredCount)) {
+            throw new CancellationException("Solve stopped after " + stationCount + " stations");
+        }
+    }
+
+    private int cover(int town, int[] offsets, int[] neighbours, boolean[] covered, int[] score, ScoreQueue queue) {
+        if (covered[town]) {
+            return 0;
+        }
+        covered[town] = true;
+        for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+            int neighbour = neighbours[i];
+            score[neighbour] = score[neighbour] - 1;
+            if (!covered[neighbour]) {
+                queue.push(neighbour, score[neighbour]);
             }
         }
-        return score;
+        return 1;
     }
 }
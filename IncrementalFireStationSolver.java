@@ -0,0 +1,365 @@
+/*
+ * [IncrementalFireStationSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Keeps a station set covering every town while towns and roads are added and removed, repairing
+ * each change around the towns it touches; matchesFullSolve() reports any drift from a full solve.
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class IncrementalFireStationSolver {
+    private final List<Town> towns = new ArrayList<>(); // null once a town is removed
+    private final Map<Town, Integer> indexOf = new HashMap<>();
+    private int[][] adjacency = new int[16][];
+    private int[] degree = new int[16];
+    private boolean[] isStation = new boolean[16];
+    private int[] coverCount = new int[16]; // stations in the closed neighbourhood of each town
+
+    // the stations a full solve gives for the current map, or null if it has not been worked out
+    private Set<Town> fullSolveStations;
+
+    public IncrementalFireStationSolver(Map<Town, Set<Town>> townsMap) {
+        this(townsMap, null, null, null);
+    }
+
+    public IncrementalFireStationSolver(Map<Town, Set<Town>> townsMap, FireStationSolver.ProgressListener progressListener) {
+        this(townsMap, progressListener, null, null);
+    }
+
+    /**
+     * @param progressListener told how the first full solve is going, and able to stop it; may be null
+     * @param cache where the first full solve looks for and stores its answer; may be null. Later
+     *        full solves are of edited maps the caller has no key for, so they are not cached
+     * @param cacheSource stands for the starting map in the cache's memory, see SolveCache.get
+     */
+    public IncrementalFireStationSolver(Map<Town, Set<Town>> townsMap, FireStationSolver.ProgressListener progressListener,
+            SolveCache cache, Object cacheSource) {
+        for (Town town : townsMap.keySet()) {
+            addVertex(town);
+        }
+        for (Map.Entry<Town, Set<Town>> entry : townsMap.entrySet()) {
+            int from = indexOf.get(entry.getKey());
+            for (Town neighbour : entry.getValue()) {
+                Integer to = indexOf.get(neighbour);
+                if (to != null && to != from && !isAdjacent(from, to)) {
+                    link(from, to);
+                }
+            }
+        }
+        fullSolveStations = fullSolve(progressListener, cache, cacheSource);
+        resolve();
+    }
+
+    /**
+     * @return the current stations, as the Town objects they were added with
+     */
+    public Set<Town> getStations() {
+        Set<Town> stations = new LinkedHashSet<>();
+        for (int i = 0; i < towns.size(); i++) {
+            if (towns.get(i) != null && isStation[i]) {
+                stations.add(towns.get(i));
+            }
+        }
+        return stations;
+    }
+
+    public int getStationCount() {
+        int count = 0;
+        for (int i = 0; i < towns.size(); i++) {
+            if (towns.get(i) != null && isStation[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds a town with no roads. It has nothing else to cover it, so it becomes a station.
+     */
+    public void addTown(Town town) {
+        if (indexOf.containsKey(town)) {
+            return;
+        }
+        int index = addVertex(town);
+        fullSolveStations = null;
+        placeStation(index);
+    }
+
+    /**
+     * Removes a town and its roads, then covers any town that relied on it.
+     */
+    public void removeTown(Town town) {
+        Integer index = indexOf.get(town);
+        if (index == null) {
+            return;
+        }
+        fullSolveStations = null;
+        ArrayDeque<Integer> uncovered = new ArrayDeque<>();
+        if (isStation[index]) {
+            removeStation(index, uncovered);
+        }
+        while (degree[index] > 0) {
+            unlink(index, adjacency[index][degree[index] - 1]);
+        }
+        towns.set(index, null);
+        indexOf.remove(town);
+        coverCount[index] = 0;
+        coverUncovered(uncovered);
+    }
+
+    /**
+     * Adds a road, then takes away any nearby station the road made redundant.
+     */
+    public void addEdge(Town town1, Town town2) {
+        Integer index1 = indexOf.get(town1);
+        Integer index2 = indexOf.get(town2);
+        if (index1 == null || index2 == null || index1.equals(index2) || isAdjacent(index1, index2)) {
+            return;
+        }
+        fullSolveStations = null;
+        link(index1, index2);
+        if (isStation[index1]) {
+            coverCount[index2]++;
+        }
+        if (isStation[index2]) {
+            coverCount[index1]++;
+        }
+
+        // only stations that can see one of the two ends can have become redundant
+        List<Integer> nearbyStations = new ArrayList<>();
+        collectStations(index1, nearbyStations);
+        collectStations(index2, nearbyStations);
+        nearbyStations.sort((a, b) -> degree[a] != degree[b] ? Integer.compare(degree[a], degree[b])
+                : towns.get(a).getName().compareTo(towns.get(b).getName()));
+        for (int station : nearbyStations) {
+            if (isStation[station] && isRedundant(station)) {
+                removeStation(station, null);
+            }
+        }
+    }
+
+    /**
+     * Removes a road, then covers either end if it lost its only station.
+     */
+    public void removeEdge(Town town1, Town town2) {
+        Integer index1 = indexOf.get(town1);
+        Integer index2 = indexOf.get(town2);
+        if (index1 == null || index2 == null || !isAdjacent(index1, index2)) {
+            return;
+        }
+        fullSolveStations = null;
+        unlink(index1, index2);
+        ArrayDeque<Integer> uncovered = new ArrayDeque<>();
+        if (isStation[index1] && --coverCount[index2] == 0) {
+            uncovered.add(index2);
+        }
+        if (isStation[index2] && --coverCount[index1] == 0) {
+            uncovered.add(index1);
+        }
+        coverUncovered(uncovered);
+    }
+
+    /**
+     * Checks the repaired answer against a full greedy solve of the current map. This costs as
+     * much as one full solve, and the result is kept until the next change.
+     * @return true if the current stations are exactly the ones FireStationSolver would pick
+     */
+    public boolean matchesFullSolve() {
+        return getStations().equals(getFullSolveStations());
+    }
+
+    /**
+     * Throws away the repaired answer and replaces it with a full greedy solve.
+     */
+    public void resolve() {
+        Set<Town> stations = getFullSolveStations();
+        Arrays.fill(isStation, false);
+        Arrays.fill(coverCount, 0);
+        for (Town station : stations) {
+            placeStation(indexOf.get(station));
+        }
+    }
+
+    /**
+     * @return the current map in the form the visualizer and serializer use
+     */
+    public Map<Town, Set<Town>> getTownsMap() {
+        Map<Town, Set<Town>> map = new HashMap<>();
+        for (int i = 0; i < towns.size(); i++) {
+            if (towns.get(i) == null) {
+                continue;
+            }
+            Set<Town> neighbours = new LinkedHashSet<>();
+            for (int j = 0; j < degree[i]; j++) {
+                neighbours.add(towns.get(adjacency[i][j]));
+            }
+            map.put(towns.get(i), neighbours);
+        }
+        return map;
+    }
+
+    private Set<Town> getFullSolveStations() {
+        if (fullSolveStations == null) {
+            fullSolveStations = fullSolve(null, null, null);
+        }
+        return fullSolveStations;
+    }
+
+    private Set<Town> fullSolve(FireStationSolver.ProgressListener progressListener, SolveCache cache,
+            Object cacheSource) {
+        FireStationSolver solver = new FireStationSolver(getTownsMap());
+        solver.setProgressListener(progressListener);
+        solver.setCache(cache, cacheSource);
+        return solver.solve();
+    }
+
+    /**
+     * Covers every town in the queue that is still uncovered, each with the town in its
+     * closed neighbourhood that covers the most uncovered towns (ties go to the lower name).
+     */
+    private void coverUncovered(ArrayDeque<Integer> uncovered) {
+        if (SolverMetrics.isEnabled()) {
+            // a removed town may still be queued
+            SolverMetrics.recordUncovered(uncovered.stream().filter(town -> towns.get(town) != null).count());
+        }
+        while (!uncovered.isEmpty()) {
+            int town = uncovered.poll();
+            if (towns.get(town) == null || coverCount[town] > 0) {
+                continue;
+            }
+            int best = town;
+            int bestGain = gain(town);
+            for (int i = 0; i < degree[town]; i++) {
+                int candidate = adjacency[town][i];
+                int candidateGain = gain(candidate);
+                if (candidateGain > bestGain || (candidateGain == bestGain
+                        && towns.get(candidate).getName().compareTo(towns.get(best).getName()) < 0)) {
+                    best = candidate;
+                    bestGain = candidateGain;
+                }
+            }
+            placeStation(best);
+        }
+    }
+
+    private int gain(int town) {
+        int gain = coverCount[town] == 0 ? 1 : 0;
+        for (int i = 0; i < degree[town]; i++) {
+            if (coverCount[adjacency[town][i]] == 0) {
+                gain++;
+            }
+        }
+        return gain;
+    }
+
+    private boolean isRedundant(int station) {
+        if (coverCount[station] < 2) {
+            return false;
+        }
+        for (int i = 0; i < degree[station]; i++) {
+            if (coverCount[adjacency[station][i]] < 2) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void collectStations(int town, List<Integer> stations) {
+        if (isStation[town] && !stations.contains(town)) {
+            stations.add(town);
+        }
+        for (int i = 0; i < degree[town]; i++) {
+            int neighbour = adjacency[town][i];
+            if (isStation[neighbour] && !stations.contains(neighbour)) {
+                stations.add(neighbour);
+            }
+        }
+    }
+
+    private void placeStation(int station) {
+        isStation[station] = true;
+        coverCount[station]++;
+        for (int i = 0; i < degree[station]; i++) {
+            coverCount[adjacency[station][i]]++;
+        }
+    }
+
+    /**
+     * @param uncovered collects towns this leaves without a station; may be null when the
+     *        caller knows none will be
+     */
+    private void removeStation(int station, ArrayDeque<Integer> uncovered) {
+        isStation[station] = false;
+        if (--coverCount[station] == 0 && uncovered != null) {
+            uncovered.add(station);
+        }
+        for (int i = 0; i < degree[station]; i++) {
+            int neighbour = adjacency[station][i];
+            if (--coverCount[neighbour] == 0 && uncovered != null) {
+                uncovered.add(neighbour);
+            }
+        }
+    }
+
+    private int addVertex(Town town) {
+        int index = towns.size();
+        towns.add(town);
+        indexOf.put(town, index);
+        if (index == degree.length) {
+            int capacity = index * 2;
+            adjacency = Arrays.copyOf(adjacency, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+            isStation = Arrays.copyOf(isStation, capacity);
+            coverCount = Arrays.copyOf(coverCount, capacity);
+        }
+        adjacency[index] = new int[4];
+        return index;
+    }
+
+    private boolean isAdjacent(int town1, int town2) {
+        // scan the shorter row
+        int from = degree[town1] <= degree[town2] ? town1 : town2;
+        int to = from == town1 ? town2 : town1;
+        for (int i = 0; i < degree[from]; i++) {
+            if (adjacency[from][i] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void link(int town1, int town2) {
+        append(town1, town2);
+        append(town2, town1);
+    }
+
+    private void append(int town, int neighbour) {
+        if (degree[town] == adjacency[town].length) {
+            adjacency[town] = Arrays.copyOf(adjacency[town], degree[town] * 2);
+        }
+        adjacency[town][degree[town]++] = neighbour;
+    }
+
+    private void unlink(int town1, int town2) {
+        detach(town1, town2);
+        detach(town2, town1);
+    }
+
+    private void detach(int town, int neighbour) {
+        int[] row = adjacency[town];
+        for (int i = 0; i < degree[town]; i++) {
+            if (row[i] == neighbour) {
+                row[i] = row[--degree[town]];
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * [KCoverageFireStationSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Places stations so that every town has at least its demand, k or set town by town, among itself
+ * and its neighbours; towns whose neighbourhood is smaller than that are reported as infeasible.
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+public class KCoverageFireStationSolver {
+    private Map<Town, Set<Town>> townsMap;
+    private final TownGraph graph;
+    private final int[] demands;
+    private FireStationSolver.ProgressListener progressListener;
+
+    public KCoverageFireStationSolver(Map<Town, Set<Town>> townsMap, int k) {
+        this(TownGraph.fromMap(townsMap), k);
+        this.townsMap = townsMap;
+    }
+
+    /**
+     * @param k the number of stations every town needs among itself and its neighbours
+     */
+    public KCoverageFireStationSolver(TownGraph graph, int k) {
+        this(graph, filledDemands(graph.getTownCount(), k));
+    }
+
+    /**
+     * @param demands the number of stations each town needs among itself and its neighbours,
+     *        by graph index; zero leaves a town out
+     */
+    public KCoverageFireStationSolver(TownGraph graph, int[] demands) {
+        if (demands.length != graph.getTownCount()) {
+            throw new IllegalArgumentException(String.format("%d demands given for %d towns",
+                    demands.length, graph.getTownCount()));
+        }
+        for (int demand : demands) {
+            if (demand < 0) {
+                throw new IllegalArgumentException("Coverage demand must not be negative: " + demand);
+            }
+        }
+        this.graph = graph;
+        this.demands = demands.clone();
+    }
+
+    private static int[] filledDemands(int townCount, int k) {
+        int[] demands = new int[townCount];
+        Arrays.fill(demands, k);
+        return demands;
+    }
+
+    public Map<Town, Set<Town>> getTownsMap() {
+        if (townsMap == null) {
+            townsMap = graph.toMap();
+        }
+        return townsMap;
+    }
+
+    public TownGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of stations a town needs among itself and its neighbours
+     */
+    public int getDemand(int town) {
+        return demands[town];
+    }
+
+    public FireStationSolver.ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * @param progressListener told about each solve from now on, with the number of towns still
+     *        short of their demand; may be null
+     */
+    public void setProgressListener(FireStationSolver.ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @return the graph indices, in ascending order, of the towns that need more stations than
+     *         there are towns among themselves and their neighbours
+     */
+    public int[] getInfeasibleTowns() {
+        int townCount = graph.getTownCount();
+        int[] infeasible = new int[townCount];
+        int count = 0;
+        for (int i = 0; i < townCount; i++) {
+            if (demands[i] > graph.degree(i) + 1) {
+                infeasible[count++] = i;
+            }
+        }
+        return Arrays.copyOf(infeasible, count);
+    }
+
+    /**
+     * Solves the map and hands back the stations as Town objects from getTownsMap().
+     * @return the chosen stations, in the order they were placed
+     */
+    public Set<Town> solve() {
+        // graph indices follow name order, so a name-sorted array lines up with them
+        Town[] towns = getTownsMap().keySet().toArray(new Town[0]);
+        Arrays.sort(towns, Comparator.comparing(Town::getName));
+
+        Set<Town> stationSet = new LinkedHashSet<>();
+        for (int station : solveIndices()) {
+            stationSet.add(towns[station]);
+        }
+        return stationSet;
+    }
+
+    /**
+     * Greedily places stations until every town has as many among itself and its neighbours as
+     * it needs, or as its neighbourhood holds for an infeasible town.
+     * @return the graph indices of the chosen stations, in the order they were placed
+     * @throws CancellationException if the progress listener asked to stop
+     */
+    public int[] solveIndices() {
+        SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.SOLVE);
+        int townCount = graph.getTownCount();
+        int[] offsets = graph.offsets();
+        int[] neighbours = graph.neighbours();
+
+        // how many more stations each town needs, never more than its neighbourhood can give
+        int[] remaining = new int[townCount];
+        int shortTowns = 0;
+        for (int i = 0; i < townCount; i++) {
+            remaining[i] = Math.min(demands[i], graph.degree(i) + 1);
+            if (remaining[i] > 0) {
+                shortTowns++;
+            }
+        }
+        SolverMetrics.recordUncovered(shortTowns);
+
+        // a town's gain is the number of towns in its neighbourhood that still need a station;
+        // gains only shrink, so queued ones are left stale and recounted at the top
+        ScoreQueue queue = new ScoreQueue(townCount);
+        for (int i = 0; i < townCount; i++) {
+            int gain = gain(i, remaining, offsets, neighbours);
+            if (gain > 0) {
+                queue.push(i, gain);
+            }
+        }
+
+        int[] stations = new int[16];
+        int stationCount = 0;
+        long evaluations = townCount;
+        // each town has at most one entry, dropped when it becomes a station or its gain reaches
+        // zero; a short town always has a town in its neighbourhood that is not yet a station,
+        // since its demand was capped, so the queue cannot run dry while one is left
+        while (shortTowns > 0) {
+            int station = queue.peekTown();
+            int queuedGain = queue.peekScore();
+            queue.pop();
+            int gain = gain(station, remaining, offsets, neighbours);
+            evaluations++;
+            if (gain != queuedGain) {
+                if (gain > 0) {
+                    queue.push(station, gain);
+                }
+                continue;
+            }
+
+            if (stationCount == stations.length) {
+                stations = Arrays.copyOf(stations, stationCount * 2);
+            }
+            stations[stationCount++] = station;
+
+            shortTowns -= serve(station, remaining);
+            for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+                shortTowns -= serve(neighbours[i], remaining);
+            }
+
+            FireStationSolver.reportProgress(progressListener, stationCount, shortTowns);
+        }
+        SolverMetrics.endPhase(timer);
+        SolverMetrics.add(SolverMetrics.Counter.SOLVES, 1);
+        SolverMetrics.add(SolverMetrics.Counter.ITERATIONS, stationCount);
+        SolverMetrics.add(SolverMetrics.Counter.SCORE_EVALUATIONS, evaluations);
+        return Arrays.copyOf(stations, stationCount);
+    }
+
+    private static int gain(int town, int[] remaining, int[] offsets, int[] neighbours) {
+        int gain = remaining[town] > 0 ? 1 : 0;
+        for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+            if (remaining[neighbours[i]] > 0) {
+                gain++;
+            }
+        }
+        return gain;
+    }
+
+    /**
+     * Counts a new station in a town's neighbourhood.
+     * @return 1 if the town needed no more stations after this one, 0 otherwise
+     */
+    private static int serve(int town, int[] remaining) {
+        if (remaining[town] == 0) {
+            return 0;
+        }
+        return --remaining[town] == 0 ? 1 : 0;
+    }
+}
@@ -0,0 +1,524 @@
+/*
+ * [LocalSearchFireStationSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Improves greedy answers by removing redundant stations and making 2-for-1 swaps, with
+ * randomized restarts on every core until a time budget runs out.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LocalSearchFireStationSolver {
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+    // random 1-swaps between local search rounds, and rounds without progress before a restart
+    private static final int PERTURBATION_SWAPS = 4;
+    private static final int ROUNDS_PER_RESTART = 64;
+
+    private final TownGraph graph;
+    private final ForkJoinPool pool;
+    private long seed = 1;
+
+    public LocalSearchFireStationSolver(TownGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public LocalSearchFireStationSolver(TownGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    public TownGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param seed where the random starts of solve() come from, so runs can be repeated
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Removes redundant stations and applies 2-for-1 exchanges until none is left.
+     * The same stations always give the same answer.
+     * @param stations indices of a station set that covers every town
+     * @return the improved stations, ascending
+     */
+    public int[] improve(int[] stations) {
+        Search search = new Search(null, Long.MAX_VALUE);
+        search.load(stations);
+        search.improve();
+        return search.getStations();
+    }
+
+    /**
+     * Starts from the improved greedy answer, then has one worker per thread of the pool run
+     * randomized greedy passes, each followed by rounds of local search and random 1-swaps,
+     * until the time runs out.
+     * @param timeLimitMillis the wall-clock budget; the improved greedy answer is returned
+     *        even if it runs out immediately
+     */
+    public Result solve(long timeLimitMillis) {
+        long start = System.nanoTime();
+        long deadline = timeLimitMillis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE
+                : start + timeLimitMillis * 1_000_000;
+
+        int[] greedy = new FireStationSolver(graph).solveIndices();
+        SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.IMPROVE);
+        Search first = new Search(null, deadline);
+        first.load(greedy);
+        first.improve();
+        Best best = new Best(first.getStations());
+
+        AtomicLong restarts = new AtomicLong();
+        List<ForkJoinTask<?>> workers = new ArrayList<>();
+        for (int w = 0; w < pool.getParallelism() && System.nanoTime() < deadline; w++) {
+            Random random = new Random(seed * 31 + w);
+            workers.add(pool.submit(() -> {
+                Search search = new Search(random, deadline);
+                while (!search.isTimeUp()) {
+                    search.loadRandomGreedy();
+                    search.improve();
+                    best.offer(search);
+                    for (int round = 0; round < ROUNDS_PER_RESTART && !search.isTimeUp(); round++) {
+                        int before = search.stationCount;
+                        search.randomSwaps(PERTURBATION_SWAPS);
+                        search.improve();
+                        if (search.stationCount < before) {
+                            best.offer(search);
+                            round = 0;
+                        }
+                    }
+                    restarts.incrementAndGet();
+                }
+            }));
+        }
+        for (ForkJoinTask<?> worker : workers) {
+            worker.join();
+        }
+        SolverMetrics.endPhase(timer);
+
+        return new Result(best.get(), greedy.length, restarts.get(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * The best answer so far in one solve(), shared by its workers.
+     */
+    private static class Best {
+        private int[] stations;
+
+        Best(int[] stations) {
+            this.stations = stations;
+        }
+
+        synchronized void offer(Search search) {
+            if (search.stationCount < stations.length) {
+                stations = search.getStations();
+            }
+        }
+
+        synchronized int[] get() {
+            return stations;
+        }
+    }
+
+    /**
+     * One worker's station set, with the cover and private-town counts its moves are checked against.
+     */
+    private class Search {
+        private final int townCount = graph.getTownCount();
+        private final int[] offsets = graph.offsets();
+        private final int[] neighbours = graph.neighbours();
+        private final Random random; // null for the deterministic search
+        private final long deadline;
+        private boolean timeUp;
+        private int checks;
+
+        private final int[] coverCount = new int[townCount];
+        private final int[] coverOwners = new int[townCount]; // the covering stations XORed together
+        private final int[] privateCount = new int[townCount];
+        private final boolean[] isStation = new boolean[townCount];
+        private final int[] stations = new int[townCount];
+        private final int[] stationPosition = new int[townCount];
+        private int stationCount;
+
+        // stations to look at again while improving, and those held back during a trial swap
+        private boolean improving;
+        private final int[] work = new int[townCount];
+        private final boolean[] inWork = new boolean[townCount];
+        private int workCount;
+        private boolean trying;
+        private int[] held = new int[16];
+        private int heldCount;
+
+        // stations the last addStation took the last private town from
+        private final int[] freed = new int[graph.getMaxDegree() + 1];
+        private int freedCount;
+
+        private final int[] privateTowns = new int[graph.getMaxDegree() + 1];
+        private final int[] mark = new int[townCount];
+        private int stamp;
+
+        // for the randomized greedy pass
+        private int[] rankOf;
+        private int[] townAt;
+        private int[] score;
+        private boolean[] covered;
+        private ScoreQueue queue;
+
+        Search(Random random, long deadline) {
+            this.random = random;
+            this.deadline = deadline;
+        }
+
+        boolean isTimeUp() {
+            if (!timeUp && ++checks % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                timeUp = true;
+            }
+            return timeUp;
+        }
+
+        int[] getStations() {
+            int[] sorted = Arrays.copyOf(stations, stationCount);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        void load(int[] newStations) {
+            clearStations();
+            for (int station : newStations) {
+                addStation(station);
+            }
+        }
+
+        /**
+         * Loads a greedy answer that breaks ties between equal scores at random instead of by name.
+         */
+        void loadRandomGreedy() {
+            if (queue == null) {
+                rankOf = new int[townCount];
+                townAt = new int[townCount];
+                score = new int[townCount];
+                covered = new boolean[townCount];
+                queue = new ScoreQueue(townCount);
+                for (int i = 0; i < townCount; i++) {
+                    townAt[i] = i;
+                }
+            }
+            for (int i = townCount - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = townAt[i];
+                townAt[i] = townAt[j];
+                townAt[j] = swap;
+            }
+            queue.clear();
+            for (int rank = 0; rank < townCount; rank++) {
+                int town = townAt[rank];
+                rankOf[town] = rank;
+                score[town] = offsets[town + 1] - offsets[town];
+                covered[town] = false;
+                queue.push(rank, score[town]);
+            }
+
+            clearStations();
+            int uncovered = townCount;
+            while (uncovered > 0) {
+                int station = townAt[queue.peekTown()];
+                while (covered[station] || score[station] != queue.peekScore()) {
+                    queue.pop();
+                    station = townAt[queue.peekTown()];
+                }
+                queue.pop();
+                addStation(station);
+                uncovered -= coverForGreedy(station);
+                for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+                    uncovered -= coverForGreedy(neighbours[i]);
+                }
+            }
+        }
+
+        private void clearStations() {
+            Arrays.fill(coverCount, 0);
+            Arrays.fill(coverOwners, 0);
+            Arrays.fill(privateCount, 0);
+            Arrays.fill(isStation, false);
+            stationCount = 0;
+        }
+
+        private int coverForGreedy(int town) {
+            if (covered[town]) {
+                return 0;
+            }
+            covered[town] = true;
+            for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                int neighbour = neighbours[i];
+                score[neighbour]--;
+                if (!covered[neighbour]) {
+                    queue.push(rankOf[neighbour], score[neighbour]);
+                }
+            }
+            return 1;
+        }
+
+        /**
+         * Runs every move it can find until none is left or the time is up.
+         */
+        void improve() {
+            improving = true;
+            for (int i = 0; i < stationCount; i++) {
+                enqueue(stations[i]);
+            }
+            if (random != null) {
+                for (int i = workCount - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = work[i];
+                    work[i] = work[j];
+                    work[j] = swap;
+                }
+            }
+            while (workCount > 0 && !isTimeUp()) {
+                int station = work[--workCount];
+                inWork[station] = false;
+                if (isStation[station]) {
+                    tryMoves(station);
+                }
+            }
+            while (workCount > 0) {
+                inWork[work[--workCount]] = false;
+            }
+            improving = false;
+        }
+
+        private void tryMoves(int station) {
+            if (privateCount[station] == 0) {
+                removeStation(station);
+                return;
+            }
+            int privateTownCount = collectPrivateTowns(station);
+
+            // a replacement has to cover the first private town, so it is that town or a neighbour
+            int anchor = privateTowns[0];
+            for (int i = offsets[anchor] - 1; i < offsets[anchor + 1]; i++) {
+                int replacement = i < offsets[anchor] ? anchor : neighbours[i];
+                if (replacement == station || isStation[replacement]
+                        || !coversAll(replacement, privateTowns, privateTownCount)) {
+                    continue;
+                }
+                // a trial swap only queues other stations if it is kept
+                improving = false;
+                trying = true;
+                heldCount = 0;
+                removeStation(station);
+                addStation(replacement);
+                trying = false;
+                improving = true;
+                if (removeFreed() > 0) {
+                    enqueue(replacement);
+                    for (int h = 0; h < heldCount; h++) {
+                        if (isStation[held[h]]) {
+                            enqueue(held[h]);
+                        }
+                    }
+                    return;
+                }
+                // a swap that frees nothing is undone here and left to randomSwaps
+                improving = false;
+                removeStation(replacement);
+                addStation(station);
+                improving = true;
+            }
+        }
+
+        /**
+         * Makes random 1-swaps that keep every town covered, to move the search somewhere new.
+         */
+        void randomSwaps(int count) {
+            for (int swap = 0; swap < count && stationCount > 0; swap++) {
+                int station = stations[random.nextInt(stationCount)];
+                if (privateCount[station] == 0) {
+                    removeStation(station);
+                    continue;
+                }
+                int privateTownCount = collectPrivateTowns(station);
+                int anchor = privateTowns[random.nextInt(privateTownCount)];
+                int choices = offsets[anchor + 1] - offsets[anchor] + 1;
+                int startAt = random.nextInt(choices);
+                for (int k = 0; k < choices; k++) {
+                    int i = offsets[anchor] - 1 + (startAt + k) % choices;
+                    int replacement = i < offsets[anchor] ? anchor : neighbours[i];
+                    if (replacement != station && !isStation[replacement]
+                            && coversAll(replacement, privateTowns, privateTownCount)) {
+                        removeStation(station);
+                        addStation(replacement);
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return how many towns only this station covers, left at the start of privateTowns
+         */
+        private int collectPrivateTowns(int station) {
+            int count = 0;
+            if (coverCount[station] == 1) {
+                privateTowns[count++] = station;
+            }
+            for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+                if (coverCount[neighbours[i]] == 1) {
+                    privateTowns[count++] = neighbours[i];
+                }
+            }
+            return count;
+        }
+
+        private boolean coversAll(int town, int[] towns, int count) {
+            stamp++;
+            mark[town] = stamp;
+            for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                mark[neighbours[i]] = stamp;
+            }
+            for (int i = 0; i < count; i++) {
+                if (mark[towns[i]] != stamp) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return how many of the stations the last addStation left without private towns it removed
+         */
+        private int removeFreed() {
+            int removed = 0;
+            // removing one can hand private towns back to another, so each is checked as it comes
+            for (int i = 0; i < freedCount; i++) {
+                int other = freed[i];
+                if (isStation[other] && privateCount[other] == 0) {
+                    removeStation(other);
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        private void addStation(int station) {
+            isStation[station] = true;
+            stationPosition[station] = stationCount;
+            stations[stationCount++] = station;
+            freedCount = 0;
+            cover(station, station);
+            for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+                cover(neighbours[i], station);
+            }
+            if (improving) {
+                enqueue(station);
+            }
+        }
+
+        private void removeStation(int station) {
+            isStation[station] = false;
+            int last = stations[--stationCount];
+            stations[stationPosition[station]] = last;
+            stationPosition[last] = stationPosition[station];
+            uncover(station, station);
+            for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+                uncover(neighbours[i], station);
+            }
+            privateCount[station] = 0;
+        }
+
+        /**
+         * Counts one more station covering a town, taking the town from its only station so far.
+         */
+        private void cover(int town, int station) {
+            if (coverCount[town] == 0) {
+                privateCount[station]++;
+            } else if (coverCount[town] == 1) {
+                int owner = coverOwners[town];
+                if (--privateCount[owner] == 0) {
+                    freed[freedCount++] = owner;
+                }
+                changed(owner);
+            }
+            coverCount[town]++;
+            coverOwners[town] ^= station;
+        }
+
+        /**
+         * Counts one station fewer covering a town, handing it to the station left, if only one is.
+         */
+        private void uncover(int town, int station) {
+            coverCount[town]--;
+            coverOwners[town] ^= station;
+            if (coverCount[town] == 1) {
+                int owner = coverOwners[town];
+                privateCount[owner]++;
+                changed(owner);
+            }
+        }
+
+        /**
+         * Queues a station whose private towns changed, or holds it back during a trial swap.
+         */
+        private void changed(int station) {
+            if (improving) {
+                enqueue(station);
+            } else if (trying) {
+                if (heldCount == held.length) {
+                    held = Arrays.copyOf(held, heldCount * 2);
+                }
+                held[heldCount++] = station;
+            }
+        }
+
+        private void enqueue(int station) {
+            if (!inWork[station]) {
+                inWork[station] = true;
+                work[workCount++] = station;
+            }
+        }
+    }
+
+    public static class Result {
+        private final int[] stations;
+        private final int greedyCount;
+        private final long restartCount;
+        private final long elapsedMillis;
+
+        public Result(int[] stations, int greedyCount, long restartCount, long elapsedMillis) {
+            this.stations = stations;
+            this.greedyCount = greedyCount;
+            this.restartCount = restartCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * @return the indices of the best stations found, ascending
+         */
+        public int[] getStations() {
+            return stations;
+        }
+
+        /**
+         * @return how many stations the plain greedy pass placed
+         */
+        public int getGreedyCount() {
+            return greedyCount;
+        }
+
+        public long getRestartCount() {
+            return restartCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * [MapFormatException.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Thrown when a map file has a line that is not a valid Town or Edge record.
+ */
+
+import java.io.IOException;
+
+public class MapFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int lineNumber;
+
+    public MapFormatException(String fileName, int lineNumber, String message) {
+        super(String.format("%s, line %d: %s", fileName, lineNumber, message));
+        this.lineNumber = lineNumber;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
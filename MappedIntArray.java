@@ -0,0 +1,63 @@
+/*
+ * [MappedIntArray.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * A little-endian int array that lives in a file rather than on the heap, mapped in windows so it
+ * can be as long as the file allows.
+ */
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+public class MappedIntArray {
+    // ints per window, as a power of two; 1 GB, since one MappedByteBuffer cannot cover more than 2 GB
+    private static final int WINDOW_SHIFT = 28;
+    private static final int WINDOW_MASK = (1 << WINDOW_SHIFT) - 1;
+
+    private final IntBuffer[] windows;
+    private final long length;
+
+    /**
+     * Maps length ints of a file starting at a byte position. A read-write mapping grows the
+     * file if it is too short.
+     */
+    public MappedIntArray(FileChannel channel, FileChannel.MapMode mode, long position, long length)
+            throws IOException {
+        this.length = length;
+        windows = new IntBuffer[(int) ((length + WINDOW_MASK) >>> WINDOW_SHIFT)];
+        for (int w = 0; w < windows.length; w++) {
+            long first = (long) w << WINDOW_SHIFT;
+            long count = Math.min(length - first, 1L << WINDOW_SHIFT);
+            windows[w] = channel.map(mode, position + 4 * first, 4 * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int get(long index) {
+        return windows[(int) (index >>> WINDOW_SHIFT)].get((int) index & WINDOW_MASK);
+    }
+
+    public void set(long index, int value) {
+        windows[(int) (index >>> WINDOW_SHIFT)].put((int) index & WINDOW_MASK, value);
+    }
+
+    /**
+     * Copies count ints starting at index into destination.
+     */
+    public void get(long index, int[] destination, int count) {
+        int done = 0;
+        while (done < count) {
+            long at = index + done;
+            IntBuffer window = windows[(int) (at >>> WINDOW_SHIFT)];
+            int start = (int) at & WINDOW_MASK;
+            int chunk = Math.min(count - done, window.limit() - start);
+            window.get(start, destination, done, chunk);
+            done += chunk;
+        }
+    }
+}
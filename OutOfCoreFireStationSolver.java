@@ -0,0 +1,181 @@
+/*
+ * [OutOfCoreFireStationSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Runs the greedy pass straight against the memory-mapped rows of a snapshot file, keeping only
+ * per-town state on the heap, and places the same stations in the same order as FireStationSolver.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class OutOfCoreFireStationSolver implements Closeable {
+    private final File snapshotFile;
+    private final FileChannel channel;
+    private final TownMapSnapshot.Layout layout;
+    private final MappedIntArray nameOffsets;
+    private final MappedIntArray offsets;
+    private final MappedIntArray neighbours;
+    private FireStationSolver.ProgressListener progressListener;
+
+    /**
+     * Maps a snapshot file and checks that its rows stay inside the map.
+     * @throws IOException if the file is not a snapshot, is cut short, or its rows are corrupt
+     */
+    public OutOfCoreFireStationSolver(File snapshotFile) throws IOException {
+        this.snapshotFile = snapshotFile;
+        channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ);
+        try {
+            layout = TownMapSnapshot.Layout.read(channel, snapshotFile);
+            int townCount = layout.townCount;
+            nameOffsets = new MappedIntArray(channel, FileChannel.MapMode.READ_ONLY, layout.nameOffsetsPosition, townCount + 1L);
+            offsets = new MappedIntArray(channel, FileChannel.MapMode.READ_ONLY, layout.offsetsPosition, townCount + 1L);
+            neighbours = new MappedIntArray(channel, FileChannel.MapMode.READ_ONLY, layout.neighboursPosition, layout.neighbourCount);
+            checkRows();
+        } catch (IOException | RuntimeException error) {
+            channel.close();
+            throw error;
+        }
+    }
+
+    private void checkRows() throws IOException {
+        int townCount = layout.townCount;
+        if (offsets.get(0) != 0 || offsets.get(townCount) != layout.neighbourCount) {
+            throw TownMapSnapshot.corrupt(snapshotFile, "adjacency offsets do not match the neighbour count");
+        }
+        for (int i = 0; i < townCount; i++) {
+            if (offsets.get(i) > offsets.get(i + 1)) {
+                throw TownMapSnapshot.corrupt(snapshotFile, "adjacency offsets are not ascending");
+            }
+        }
+        // one pass over the file up front, so a bad index cannot surface halfway through a solve
+        for (long i = 0; i < layout.neighbourCount; i++) {
+            int neighbour = neighbours.get(i);
+            if (neighbour < 0 || neighbour >= townCount) {
+                throw TownMapSnapshot.corrupt(snapshotFile, "neighbour index out of range");
+            }
+        }
+    }
+
+    public int getTownCount() {
+        return layout.townCount;
+    }
+
+    public int getEdgeCount() {
+        return layout.neighbourCount / 2;
+    }
+
+    /**
+     * Reads a town's name from the file.
+     */
+    public String getName(int town) throws IOException {
+        int start = nameOffsets.get(town);
+        ByteBuffer name = ByteBuffer.allocate(nameOffsets.get(town + 1) - start);
+        while (name.hasRemaining()) {
+            if (channel.read(name, layout.namesPosition + start + name.position()) < 0) {
+                throw TownMapSnapshot.corrupt(snapshotFile, "name runs past the end of the file");
+            }
+        }
+        return new String(name.array(), StandardCharsets.UTF_8);
+    }
+
+    public FireStationSolver.ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public void setProgressListener(FireStationSolver.ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @return the indices of the chosen stations, in the order they were placed
+     * @throws java.util.concurrent.CancellationException if the progress listener asked to stop
+     */
+    public int[] solveIndices() {
+        SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.SOLVE);
+        int townCount = layout.townCount;
+        long[] uncoveredBits = new long[(townCount + 63) >>> 6];
+        Arrays.fill(uncoveredBits, -1L);
+        if ((townCount & 63) != 0) {
+            uncoveredBits[uncoveredBits.length - 1] = (1L << townCount) - 1;
+        }
+
+        // rows have no duplicates or loops, so a town starts with its row length as its score
+        ScoreQueue queue = new ScoreQueue(townCount);
+        int rowStart = offsets.get(0);
+        for (int i = 0; i < townCount; i++) {
+            int rowEnd = offsets.get(i + 1);
+            queue.push(i, rowEnd - rowStart);
+            rowStart = rowEnd;
+        }
+
+        int[] stations = new int[16];
+        int stationCount = 0;
+        int uncovered = townCount;
+        SolverMetrics.recordUncovered(uncovered);
+        long evaluations = townCount;
+        // queued scores are left stale and recounted from the file when they reach the top, as in
+        // BitsetGreedyKernel, so a station costs row reads rather than a write per road it covers
+        while (uncovered > 0) {
+            int station = queue.peekTown();
+            int queuedScore = queue.peekScore();
+            queue.pop();
+            if ((uncoveredBits[station >>> 6] & (1L << station)) == 0) {
+                continue;
+            }
+            int score = score(station, uncoveredBits);
+            evaluations++;
+            if (score != queuedScore) {
+                queue.push(station, score);
+                continue;
+            }
+
+            if (stationCount == stations.length) {
+                stations = Arrays.copyOf(stations, stationCount * 2);
+            }
+            stations[stationCount++] = station;
+
+            // the station covers itself and every neighbour
+            uncoveredBits[station >>> 6] &= ~(1L << station);
+            uncovered -= score + 1;
+            long end = offsets.get(station + 1);
+            for (long k = offsets.get(station); k < end; k++) {
+                int neighbour = neighbours.get(k);
+                uncoveredBits[neighbour >>> 6] &= ~(1L << neighbour);
+            }
+
+            FireStationSolver.reportProgress(progressListener, stationCount, uncovered);
+        }
+        SolverMetrics.endPhase(timer);
+        SolverMetrics.add(SolverMetrics.Counter.SOLVES, 1);
+        SolverMetrics.add(SolverMetrics.Counter.ITERATIONS, stationCount);
+        SolverMetrics.add(SolverMetrics.Counter.SCORE_EVALUATIONS, evaluations);
+        return Arrays.copyOf(stations, stationCount);
+    }
+
+    private int score(int town, long[] uncoveredBits) {
+        int score = 0;
+        long end = offsets.get(town + 1);
+        for (long k = offsets.get(town); k < end; k++) {
+            int neighbour = neighbours.get(k);
+            if ((uncoveredBits[neighbour >>> 6] & (1L << neighbour)) != 0) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Closes the file. Its mappings stay readable until they are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * [ParallelFireStationSolver.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Runs the greedy solver on every connected component at once on a fork-join pool, merging by
+ * placement score so the stations and their order match the sequential solver's.
+ */
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelFireStationSolver extends FireStationSolver {
+    // components are grouped into tasks of at least this many towns
+    private static final int TASK_TOWN_THRESHOLD = 8192;
+
+    private final ForkJoinPool pool;
+
+    public ParallelFireStationSolver(Map<Town, Set<Town>> townsMap) {
+        this(townsMap, ForkJoinPool.commonPool());
+    }
+
+    public ParallelFireStationSolver(Map<Town, Set<Town>> townsMap, ForkJoinPool pool) {
+        super(townsMap);
+        this.pool = pool;
+    }
+
+    public ParallelFireStationSolver(TownGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public ParallelFireStationSolver(TownGraph graph, ForkJoinPool pool) {
+        super(graph);
+        this.pool = pool;
+    }
+
+    @Override
+    public int[] solveIndices(int[] placementScores) {
+        TownGraph graph = getGraph();
+        if (getProgressListener() != null) {
+            // progress is counted in placement order, which only the sequential pass follows
+            return super.solveIndices(placementScores);
+        }
+        int[][] components = graph.components();
+        int largest = 0;
+        for (int[] component : components) {
+            largest = Math.max(largest, component.length);
+        }
+        if (largest > graph.getTownCount() / 2) {
+            // the other components could save at most half the time, less than copying this one costs
+            return super.solveIndices(placementScores);
+        }
+
+        int[][] componentStations = new int[components.length][];
+        int[][] componentScores = new int[components.length][];
+        pool.invoke(new ComponentTask(graph, getKernel(), components, componentStations, componentScores, 0,
+                components.length));
+
+        // merge by descending placement score, then ascending index, as the sequential pass places them
+        int stationCount = 0;
+        for (int[] stations : componentStations) {
+            stationCount += stations.length;
+        }
+        long[] keys = new long[stationCount];
+        int next = 0;
+        for (int c = 0; c < components.length; c++) {
+            for (int i = 0; i < componentStations[c].length; i++) {
+                int station = components[c][componentStations[c][i]];
+                keys[next++] = ((long) componentScores[c][i] << 31) | (Integer.MAX_VALUE - station);
+            }
+        }
+        Arrays.sort(keys);
+
+        int[] stations = new int[stationCount];
+        for (int i = 0; i < stationCount; i++) {
+            long key = keys[stationCount - 1 - i];
+            stations[i] = Integer.MAX_VALUE - (int) (key & Integer.MAX_VALUE);
+            if (placementScores != null) {
+                placementScores[i] = (int) (key >> 31);
+            }
+        }
+        return stations;
+    }
+
+    /**
+     * Solves a range of components, splitting it in half while it holds enough towns to be worth it.
+     * Results are written into the slot of each component, so tasks never share state.
+     */
+    private static class ComponentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TownGraph graph;
+        private final Kernel kernel;
+        private final int[][] components;
+        private final int[][] componentStations;
+        private final int[][] componentScores;
+        private final int from;
+        private final int to;
+
+        ComponentTask(TownGraph graph, Kernel kernel, int[][] components, int[][] componentStations,
+                int[][] componentScores, int from, int to) {
+            this.graph = graph;
+            this.kernel = kernel;
+            this.components = components;
+            this.componentStations = componentStations;
+            this.componentScores = componentScores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int towns = 0;
+            for (int c = from; c < to; c++) {
+                towns += components[c].length;
+            }
+            if (to - from > 1 && towns > TASK_TOWN_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ComponentTask(graph, kernel, components, componentStations, componentScores, from, middle),
+                        new ComponentTask(graph, kernel, components, componentStations, componentScores, middle, to));
+                return;
+            }
+
+            for (int c = from; c < to; c++) {
+                if (components[c].length == 1) {
+                    // an isolated town is its own station
+                    componentStations[c] = new int[] {0};
+                    componentScores[c] = new int[] {0};
+                    continue;
+                }
+                FireStationSolver solver = new FireStationSolver(graph.subgraph(components[c]));
+                solver.setKernel(kernel);
+                int[] scores = new int[components[c].length];
+                int[] stations = solver.solveIndices(scores);
+                componentStations[c] = stations;
+                componentScores[c] = Arrays.copyOf(scores, stations.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * [ScoreQueue.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * A max priority queue of (town index, score) pairs on a primitive heap, equal scores coming out
+ * by lowest town index. Entries are never updated: callers push a fresh one and skip stale ones.
+ */
+
+import java.util.Arrays;
+
+public class ScoreQueue {
+    private long[] heap;
+    private int size;
+
+    public ScoreQueue(int initialCapacity) {
+        this.heap = new long[Math.max(initialCapacity, 16)];
+        this.size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void push(int town, int score) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        long key = encode(town, score);
+        int child = size++;
+        // sift the new key up
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[child] = heap[parent];
+            child = parent;
+        }
+        heap[child] = key;
+    }
+
+    public int peekTown() {
+        return Integer.MAX_VALUE - (int) (heap[0] & Integer.MAX_VALUE);
+    }
+
+    public int peekScore() {
+        return (int) (heap[0] >> 31);
+    }
+
+    public void pop() {
+        long last = heap[--size];
+        if (size == 0) {
+            return;
+        }
+        // sift the last key down from the root
+        int parent = 0;
+        int half = size >>> 1;
+        while (parent < half) {
+            int child = 2 * parent + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child = child + 1;
+            }
+            if (last >= heap[child]) {
+                break;
+            }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = last;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // scores are in the high bits so they dominate, and the town index is stored inverted
+    // so that a lower index compares as a larger key
+    private static long encode(int town, int score) {
+        return ((long) score << 31) | (Integer.MAX_VALUE - town);
+    }
+}
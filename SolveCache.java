@@ -0,0 +1,224 @@
+/*
+ * [SolveCache.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Remembers solved stations in memory, keyed by something the caller holds that changes with the
+ * graph, and optionally in a directory, keyed by a SHA-256 fingerprint of the graph.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+public class SolveCache {
+    private static final int MAGIC = 0x4C4F5354; // "TSOL" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final String SUFFIX = ".stations";
+    // the key, the entry and the map node cost about this much beside the stations themselves
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final long maxBytes;
+    private final Path directory;
+    private final LinkedHashMap<Key, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * A cache that only keeps results in memory.
+     */
+    public SolveCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * @param directory where results are also kept on disk, created when first written; may be null
+     */
+    public SolveCache(long maxBytes, Path directory) {
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+    }
+
+    /**
+     * Only a memory miss with a directory works out the graph's fingerprint.
+     * @param source stands for the graph in memory: equal whenever the graph is the same and
+     *        different once it changes, such as a TownMapVersion's graph id or a file's path,
+     *        modified time and size; it is kept, so it should be small
+     * @param options names the solver and every setting that changes its answer, such as "greedy"
+     * @return a copy of the stations stored for this graph and options, or null if there are none
+     */
+    public int[] get(Object source, TownGraph graph, String options) {
+        Key key = new Key(source, options);
+        int[] stations;
+        synchronized (this) {
+            stations = entries.get(key);
+        }
+        if (stations == null && directory != null) {
+            stations = readFile(fileKey(graph, options), graph.getTownCount());
+            if (stations != null) {
+                remember(key, stations);
+            }
+        }
+        SolverMetrics.add(stations == null ? SolverMetrics.Counter.CACHE_MISSES : SolverMetrics.Counter.CACHE_HITS, 1);
+        return stations == null ? null : stations.clone();
+    }
+
+    /**
+     * Stores the stations a solver found for a graph.
+     * @param source stands for the graph in memory, as for get()
+     */
+    public void put(Object source, TownGraph graph, String options, int[] stations) {
+        remember(new Key(source, options), stations.clone());
+        if (directory != null) {
+            writeFile(fileKey(graph, options), graph.getTownCount(), stations);
+        }
+    }
+
+    /**
+     * @return the number of results held in memory
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forgets every result held in memory. Files on disk are left alone.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private synchronized void remember(Key key, int[] stations) {
+        long size = weight(stations);
+        if (size > maxBytes) {
+            return;
+        }
+        int[] previous = entries.put(key, stations);
+        bytes += size - (previous == null ? 0 : weight(previous));
+        Iterator<int[]> oldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= weight(oldest.next());
+            oldest.remove();
+        }
+    }
+
+    private static long weight(int[] stations) {
+        return ENTRY_OVERHEAD_BYTES + 4L * stations.length;
+    }
+
+    /**
+     * The options are hashed in with the fingerprint so keys are safe to use as file names.
+     */
+    private static String fileKey(TownGraph graph, String options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException missing) {
+            throw new IllegalStateException("SHA-256 is not available", missing);
+        }
+        digest.update(graph.getFingerprint().getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) 0);
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return the stations in the file for this key, or null if there is no such file or it
+     *         does not hold a valid answer for a graph of this size
+     */
+    private int[] readFile(String key, int townCount) {
+        Path file = directory.resolve(key + SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > HEADER_BYTES + 4L * townCount) {
+                return null;
+            }
+            ByteBuffer contents = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            while (contents.hasRemaining() && channel.read(contents) >= 0) {
+                // keep reading until the buffer is full
+            }
+            contents.flip();
+            if (contents.remaining() != size || contents.getInt() != MAGIC || contents.getInt() != VERSION
+                    || contents.getInt() != townCount) {
+                return null;
+            }
+            int stationCount = contents.getInt();
+            if (stationCount < 0 || size != HEADER_BYTES + 4L * stationCount) {
+                return null;
+            }
+            int[] stations = new int[stationCount];
+            contents.asIntBuffer().get(stations);
+            for (int station : stations) {
+                if (station < 0 || station >= townCount) {
+                    return null;
+                }
+            }
+            return stations;
+        } catch (NoSuchFileException missing) {
+            return null;
+        } catch (IOException readError) {
+            System.err.println(String.format("Error reading solve cache: %s", readError.getMessage()));
+            return null;
+        }
+    }
+
+    private void writeFile(String key, int townCount, int[] stations) {
+        try {
+            Files.createDirectories(directory);
+            TownMapWriter.writeAtomically(directory.resolve(key + SUFFIX), temporaryFile -> {
+                ByteBuffer contents = ByteBuffer.allocate(HEADER_BYTES + 4 * stations.length).order(ByteOrder.LITTLE_ENDIAN);
+                contents.putInt(MAGIC).putInt(VERSION).putInt(townCount).putInt(stations.length);
+                IntBuffer values = contents.asIntBuffer();
+                values.put(stations);
+                contents.position(0);
+                try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                    while (contents.hasRemaining()) {
+                        channel.write(contents);
+                    }
+                }
+            });
+        } catch (IOException writeError) {
+            System.err.println(String.format("Error writing solve cache: %s", writeError.getMessage()));
+        }
+    }
+
+    private static final class Key {
+        private final Object source;
+        private final String options;
+
+        Key(Object source, String options) {
+            this.source = Objects.requireNonNull(source);
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return source.equals(other.source) && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + options.hashCode();
+        }
+    }
+}
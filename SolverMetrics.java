@@ -0,0 +1,260 @@
+/*
+ * [SolverMetrics.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Process-wide timings and counters for reading, building, solving and writing maps, readable
+ * from snapshot(), JMX and Java Flight Recorder. While off, every call returns after one check.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public class SolverMetrics {
+    public static final String MBEAN_NAME = "planner:type=SolverMetrics";
+
+    /**
+     * The timed stages of loading, solving and saving a map.
+     */
+    public enum Phase {
+        PARSE("parse"), BUILD("build"), SOLVE("solve"), IMPROVE("improve"), BOUND("bound"), WRITE("write");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    public enum Counter {
+        /** greedy passes run, one per component when solving in parallel */
+        SOLVES("solves"),
+        /** stations placed by greedy passes */
+        ITERATIONS("iterations"),
+        /** scores set or recounted by greedy passes */
+        SCORE_EVALUATIONS("scoreEvaluations"),
+        TOWNS_READ("townsRead"),
+        LINES_READ("linesRead"),
+        /** solves answered by a SolveCache */
+        CACHE_HITS("cacheHits"),
+        CACHE_MISSES("cacheMisses");
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("planner.metrics");
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final LongAdder[] phaseCount = adders(PHASES.length);
+    private static final LongAdder[] phaseNanos = adders(PHASES.length);
+    private static final LongAdder[] phaseAllocatedBytes = adders(PHASES.length);
+    private static final LongAccumulator[] phaseMaxNanos = new LongAccumulator[PHASES.length];
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final LongAdder[] counters = adders(COUNTERS.length);
+    private static final LongAccumulator peakUncovered = new LongAccumulator(Math::max, 0);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static boolean registered;
+
+    static {
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseMaxNanos[i] = new LongAccumulator(Math::max, 0);
+        }
+        if (Boolean.getBoolean("planner.metrics.jmx")) {
+            try {
+                registerMBean();
+            } catch (JMException registerError) {
+                System.err.println(String.format("Error registering metrics MBean: %s", registerError.getMessage()));
+            }
+        }
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        SolverMetrics.enabled = enabled;
+    }
+
+    /**
+     * @return a timer to hand to endPhase, or null while recording is off
+     */
+    public static Timer startPhase(Phase phase) {
+        return enabled ? new Timer(phase) : null;
+    }
+
+    /**
+     * Records the time and the bytes allocated by this thread since the timer was started.
+     * @param timer from startPhase; may be null
+     */
+    public static void endPhase(Timer timer) {
+        if (timer == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - timer.startNanos;
+        long allocated = timer.startAllocatedBytes < 0 ? 0 : allocatedBytes() - timer.startAllocatedBytes;
+        int phase = timer.phase.ordinal();
+        phaseCount[phase].increment();
+        phaseNanos[phase].add(nanos);
+        phaseMaxNanos[phase].accumulate(nanos);
+        phaseAllocatedBytes[phase].add(allocated);
+
+        if (timer.event.shouldCommit()) {
+            timer.event.phase = timer.phase.key;
+            timer.event.allocatedBytes = allocated;
+            timer.event.commit();
+        }
+    }
+
+    public static void add(Counter counter, long amount) {
+        if (enabled) {
+            counters[counter.ordinal()].add(amount);
+        }
+    }
+
+    /**
+     * Keeps the largest number of towns left to cover when a greedy pass, a k-coverage pass or an
+     * incremental repair starts, which is the most any of them has had uncovered at once.
+     */
+    public static void recordUncovered(long uncovered) {
+        if (enabled) {
+            peakUncovered.accumulate(uncovered);
+        }
+    }
+
+    /**
+     * @return every value by name, such as parse.nanos or scoreEvaluations, in name order
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Phase phase : PHASES) {
+            int i = phase.ordinal();
+            values.put(phase.key + ".count", phaseCount[i].sum());
+            values.put(phase.key + ".nanos", phaseNanos[i].sum());
+            values.put(phase.key + ".maxNanos", phaseMaxNanos[i].get());
+            values.put(phase.key + ".allocatedBytes", phaseAllocatedBytes[i].sum());
+        }
+        for (Counter counter : COUNTERS) {
+            values.put(counter.key, counters[counter.ordinal()].sum());
+        }
+        values.put("peakUncovered", peakUncovered.get());
+        return values;
+    }
+
+    public static void reset() {
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseCount[i].reset();
+            phaseNanos[i].reset();
+            phaseMaxNanos[i].reset();
+            phaseAllocatedBytes[i].reset();
+        }
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+        peakUncovered.reset();
+    }
+
+    /**
+     * Makes the metrics readable over JMX. Calling it again does nothing.
+     */
+    public static synchronized void registerMBean() throws JMException {
+        if (!registered) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new Bean(), new ObjectName(MBEAN_NAME));
+            registered = true;
+        }
+    }
+
+    /**
+     * @return the bytes this thread has allocated so far, or -1 if the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * A phase that has been started and not yet ended.
+     */
+    public static final class Timer {
+        private final Phase phase;
+        private final long startAllocatedBytes = allocatedBytes();
+        private final PhaseEvent event = new PhaseEvent();
+        private final long startNanos;
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            event.begin();
+            startNanos = System.nanoTime();
+        }
+    }
+
+    public interface MetricsMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        Map<String, Long> getValues();
+
+        void reset();
+    }
+
+    private static class Bean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return SolverMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            SolverMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public Map<String, Long> getValues() {
+            return snapshot();
+        }
+
+        @Override
+        public void reset() {
+            SolverMetrics.reset();
+        }
+    }
+
+    @Name("planner.Phase")
+    @Label("Planner Phase")
+    @Category("City Fire Stations Planner")
+    static class PhaseEvent extends jdk.jfr.Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+}
@@ -5,22 +5,23 @@
  */
 
 import java.awt.Point;
-import java.util.Objects;
 
 public class Town {
     private final String name;
+    private final int hash; // towns are hashed on every map lookup, so the name's hash is kept
+    private int id = -1; // dense index given by a TownRegistry, or -1 if it has none
     private boolean hasFireStation;
     private Point origin;
 
     public Town(String name, Point origin) {
         this.name = name;
+        this.hash = name.hashCode();
         this.origin = origin;
         setHasFireStation(false);
     }
 
     public Town(String name) {
-        this.name = name;
-        setHasFireStation(false);
+        this(name, null);
     }
 
     public Point getOrigin() {
@@ -43,6 +44,18 @@ public class Town {
         return name;
     }
 
+    /**
+     * @return the index the town's registry gave it, or -1 if it is not in a registry
+     * @see TownRegistry
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -55,12 +68,13 @@ public class Town {
 
         Town other = (Town) obj;
 
-        return this.name.equals(other.name);
+        // registered towns share one name String, so equal names are usually the same object
+        return this.hash == other.hash && (this.name == other.name || this.name.equals(other.name));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.name);
+        return hash;
     }
 
     @Override
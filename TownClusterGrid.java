@@ -0,0 +1,263 @@
+/*
+ * [TownClusterGrid.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * A stack of grids over town origins, each with cells twice as wide as the one below, that counts
+ * the towns and stations in every cell so the visualizer can draw a crowded map as clusters.
+ */
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class TownClusterGrid {
+    private final int baseCellSize;
+    private final List<Map<Long, Cluster>> levels;
+    private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+    /**
+     * @param baseCellSize the width of a bottom-level cell in map units
+     * @param levelCount the number of levels, the top one having cells baseCellSize << (levelCount - 1) wide
+     */
+    public TownClusterGrid(int baseCellSize, int levelCount) {
+        this.baseCellSize = baseCellSize;
+        this.levels = new ArrayList<>(levelCount);
+        for (int level = 0; level < levelCount; level++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Counts every town of a collection, none of them with a fire station yet; stations are
+     * counted as stationChanged() reports them.
+     */
+    public static TownClusterGrid fromTowns(Collection<Town> towns, int baseCellSize, int levelCount) {
+        TownClusterGrid grid = new TownClusterGrid(baseCellSize, levelCount);
+        Map<Long, Cluster> bottom = grid.levels.get(0);
+        for (Town town : towns) {
+            int x = town.getOrigin().x;
+            int y = town.getOrigin().y;
+            grid.clusterAt(bottom, Math.floorDiv(x, baseCellSize), Math.floorDiv(y, baseCellSize))
+                    .add(x, y, 0).addTown(town);
+            grid.include(x, y);
+        }
+
+        // each level is summed from the one below, which has far fewer cells than there are towns
+        for (int level = 1; level < levelCount; level++) {
+            Map<Long, Cluster> cells = grid.levels.get(level);
+            for (Cluster child : grid.levels.get(level - 1).values()) {
+                Cluster parent = grid.clusterAt(cells, Math.floorDiv(child.cellX, 2), Math.floorDiv(child.cellY, 2));
+                parent.townCount += child.townCount;
+                parent.stationCount += child.stationCount;
+                parent.sumX += child.sumX;
+                parent.sumY += child.sumY;
+            }
+        }
+        return grid;
+    }
+
+    public void clear() {
+        for (Map<Long, Cluster> cells : levels) {
+            cells.clear();
+        }
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+    }
+
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * @return the width of the cells of a level in map units
+     */
+    public long getCellSize(int level) {
+        return (long) baseCellSize << level;
+    }
+
+    /**
+     * @return the smallest rectangle holding every town origin added since the grid was made or
+     *         cleared, or null if there are none
+     */
+    public Rectangle getBounds() {
+        if (minX > maxX) {
+            return null;
+        }
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    public void addTown(Town town, boolean hasStation) {
+        int x = town.getOrigin().x;
+        int y = town.getOrigin().y;
+        int stations = hasStation ? 1 : 0;
+        for (int level = 0; level < levels.size(); level++) {
+            long cellSize = getCellSize(level);
+            Cluster cluster = clusterAt(levels.get(level), (int) Math.floorDiv(x, cellSize), (int) Math.floorDiv(y, cellSize))
+                    .add(x, y, stations);
+            if (level == 0) {
+                cluster.addTown(town);
+            }
+        }
+        include(x, y);
+    }
+
+    /**
+     * Takes a town out of every level, dropping the cells it leaves empty.
+     */
+    public void removeTown(Town town, boolean hasStation) {
+        int x = town.getOrigin().x;
+        int y = town.getOrigin().y;
+        for (int level = 0; level < levels.size(); level++) {
+            long cellSize = getCellSize(level);
+            long key = key((int) Math.floorDiv(x, cellSize), (int) Math.floorDiv(y, cellSize));
+            Cluster cluster = levels.get(level).get(key);
+            if (cluster == null) {
+                continue;
+            }
+            cluster.townCount--;
+            cluster.stationCount -= hasStation ? 1 : 0;
+            cluster.sumX -= x;
+            cluster.sumY -= y;
+            if (cluster.towns != null) {
+                cluster.towns.remove(town);
+            }
+            if (cluster.townCount == 0) {
+                levels.get(level).remove(key);
+            }
+        }
+    }
+
+    /**
+     * Updates the station counts after a town gained or lost its fire station.
+     */
+    public void stationChanged(Town town, boolean hasStation) {
+        int x = town.getOrigin().x;
+        int y = town.getOrigin().y;
+        for (int level = 0; level < levels.size(); level++) {
+            long cellSize = getCellSize(level);
+            Cluster cluster = levels.get(level).get(key((int) Math.floorDiv(x, cellSize), (int) Math.floorDiv(y, cellSize)));
+            if (cluster != null) {
+                cluster.stationCount += hasStation ? 1 : -1;
+            }
+        }
+    }
+
+    /**
+     * Calls the action for every non-empty cell of a level that touches the area.
+     */
+    public void forEachCluster(int level, Rectangle area, Consumer<Cluster> action) {
+        Map<Long, Cluster> cells = levels.get(level);
+        long cellSize = getCellSize(level);
+        long fromX = Math.floorDiv((long) area.x, cellSize);
+        long toX = Math.floorDiv((long) area.x + area.width, cellSize);
+        long fromY = Math.floorDiv((long) area.y, cellSize);
+        long toY = Math.floorDiv((long) area.y + area.height, cellSize);
+        if ((toX - fromX + 1) * (toY - fromY + 1) > cells.size()) {
+            // the area covers more cells than are filled, so going through the filled ones is cheaper
+            for (Cluster cluster : cells.values()) {
+                if (cluster.cellX >= fromX && cluster.cellX <= toX && cluster.cellY >= fromY && cluster.cellY <= toY) {
+                    action.accept(cluster);
+                }
+            }
+            return;
+        }
+        for (long cellY = fromY; cellY <= toY; cellY++) {
+            for (long cellX = fromX; cellX <= toX; cellX++) {
+                Cluster cluster = cells.get(key((int) cellX, (int) cellY));
+                if (cluster != null) {
+                    action.accept(cluster);
+                }
+            }
+        }
+    }
+
+    private void include(int x, int y) {
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    private Cluster clusterAt(Map<Long, Cluster> cells, int cellX, int cellY) {
+        return cells.computeIfAbsent(key(cellX, cellY), key -> new Cluster(cellX, cellY));
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The towns in one cell of one level.
+     */
+    public static class Cluster {
+        private final int cellX;
+        private final int cellY;
+        private int townCount;
+        private int stationCount;
+        private long sumX;
+        private long sumY;
+        private List<Town> towns; // only on the bottom level
+
+        private Cluster(int cellX, int cellY) {
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+
+        private Cluster add(int x, int y, int stations) {
+            townCount++;
+            stationCount += stations;
+            sumX += x;
+            sumY += y;
+            return this;
+        }
+
+        private void addTown(Town town) {
+            if (towns == null) {
+                towns = new ArrayList<>(2);
+            }
+            towns.add(town);
+        }
+
+        /**
+         * @return the column of the cell within its level
+         */
+        public int getCellX() {
+            return cellX;
+        }
+
+        public int getCellY() {
+            return cellY;
+        }
+
+        public int getTownCount() {
+            return townCount;
+        }
+
+        public int getStationCount() {
+            return stationCount;
+        }
+
+        /**
+         * @return the mean x of the town origins in the cell
+         */
+        public double getCentreX() {
+            return (double) sumX / townCount;
+        }
+
+        public double getCentreY() {
+            return (double) sumY / townCount;
+        }
+
+        /**
+         * @return the towns in the cell, for a cell of the bottom level
+         */
+        public List<Town> getTowns() {
+            return towns == null ? Collections.emptyList() : towns;
+        }
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * [TownGraph.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * An immutable town map in compressed sparse row form, towns numbered in String order of their
+ * names. Roads are undirected; duplicates are merged and roads from a town to itself dropped.
+ */
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TownGraph {
+    // subgraphs with at least this share of the towns index them with a table
+    private static final int SUBGRAPH_TABLE_FRACTION = 16;
+
+    private final String[] names;
+    private final int[] xCoords;
+    private final int[] yCoords;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private volatile String fingerprint; // worked out on first use
+
+    private TownGraph(String[] names, int[] xCoords, int[] yCoords, int[] offsets, int[] neighbours) {
+        this.names = names;
+        this.xCoords = xCoords;
+        this.yCoords = yCoords;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Wraps arrays that already hold a valid graph, such as ones loaded from a snapshot file.
+     * Names must be sorted and every neighbour row sorted, duplicate-free and symmetric.
+     */
+    static TownGraph fromArrays(String[] names, int[] xCoords, int[] yCoords, int[] offsets, int[] neighbours) {
+        return new TownGraph(names, xCoords, yCoords, offsets, neighbours);
+    }
+
+    public int getTownCount() {
+        return names.length;
+    }
+
+    /**
+     * @return the number of undirected roads
+     */
+    public int getEdgeCount() {
+        return neighbours.length / 2;
+    }
+
+    public String getName(int town) {
+        return names[town];
+    }
+
+    /**
+     * A SHA-256 digest of the names, positions and roads of every town, taken in index order.
+     * Indices and rows are already canonical, so maps with the same towns and roads share a
+     * fingerprint however their towns and edges were ordered, and any other change gives a new one.
+     * @return the digest as 64 hex digits
+     */
+    public String getFingerprint() {
+        String result = fingerprint;
+        if (result == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException missing) {
+                throw new IllegalStateException("SHA-256 is not available", missing);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(names.length).putInt(neighbours.length);
+            for (int i = 0; i < names.length; i++) {
+                byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 12 + name.length) {
+                    update(digest, buffer);
+                }
+                if (buffer.remaining() < 12 + name.length) {
+                    digest.update(ByteBuffer.allocate(4).putInt(name.length).flip());
+                    digest.update(name);
+                } else {
+                    buffer.putInt(name.length).put(name);
+                }
+                buffer.putInt(xCoords[i]).putInt(yCoords[i]);
+            }
+            for (int[] values : new int[][] {offsets, neighbours}) {
+                for (int value : values) {
+                    if (buffer.remaining() < 4) {
+                        update(digest, buffer);
+                    }
+                    buffer.putInt(value);
+                }
+            }
+            update(digest, buffer);
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+            }
+            result = hex.toString();
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer) {
+        digest.update(buffer.flip());
+        buffer.clear();
+    }
+
+    public int getX(int town) {
+        return xCoords[town];
+    }
+
+    public int getY(int town) {
+        return yCoords[town];
+    }
+
+    /**
+     * @return the index of the town with the given name, or -1 if there is none
+     */
+    public int indexOf(String name) {
+        int index = Arrays.binarySearch(names, name);
+        return index >= 0 ? index : -1;
+    }
+
+    public int degree(int town) {
+        return offsets[town + 1] - offsets[town];
+    }
+
+    public int getMaxDegree() {
+        int max = 0;
+        for (int i = 0; i < names.length; i++) {
+            max = Math.max(max, degree(i));
+        }
+        return max;
+    }
+
+    /**
+     * The raw offset array, of length getTownCount() + 1. Callers must not modify it.
+     */
+    public int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * The raw neighbour array: town i's neighbours, in ascending order, run from
+     * neighbours[offsets[i]] up to but not including neighbours[offsets[i + 1]]. Callers must
+     * not modify it.
+     */
+    public int[] neighbours() {
+        return neighbours;
+    }
+
+    public boolean areNeighbours(int town1, int town2) {
+        return Arrays.binarySearch(neighbours, offsets[town1], offsets[town1 + 1], town2) >= 0;
+    }
+
+    /**
+     * Labels the connected components with a breadth-first search. Components are
+     * numbered from 0 in order of their lowest town index.
+     * @return the component number of every town
+     */
+    public int[] componentIds() {
+        int[] component = new int[names.length];
+        Arrays.fill(component, -1);
+        int[] queue = new int[names.length];
+        int componentCount = 0;
+        for (int root = 0; root < names.length; root++) {
+            if (component[root] != -1) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            component[root] = componentCount;
+            while (head < tail) {
+                int town = queue[head++];
+                for (int i = offsets[town]; i < offsets[town + 1]; i++) {
+                    if (component[neighbours[i]] == -1) {
+                        component[neighbours[i]] = componentCount;
+                        queue[tail++] = neighbours[i];
+                    }
+                }
+            }
+            componentCount++;
+        }
+        return component;
+    }
+
+    /**
+     * Groups the towns of each connected component together.
+     * @return one ascending array of town indices per component, in component number order
+     */
+    public int[][] components() {
+        int[] component = componentIds();
+        int componentCount = 0;
+        for (int id : component) {
+            componentCount = Math.max(componentCount, id + 1);
+        }
+        int[] sizes = new int[componentCount];
+        for (int id : component) {
+            sizes[id]++;
+        }
+        int[][] members = new int[componentCount][];
+        for (int i = 0; i < componentCount; i++) {
+            members[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int town = 0; town < component.length; town++) {
+            int id = component[town];
+            members[id][sizes[id]++] = town;
+        }
+        return members;
+    }
+
+    /**
+     * Copies out the graph induced by the given towns. Town i of the result is towns[i]
+     * of this graph, so name order, and with it the solver's tie-break, is preserved.
+     * @param towns ascending town indices
+     */
+    public TownGraph subgraph(int[] towns) {
+        String[] subNames = new String[towns.length];
+        int[] subX = new int[towns.length];
+        int[] subY = new int[towns.length];
+        int[] subOffsets = new int[towns.length + 1];
+        int edgeEnds = 0;
+        for (int i = 0; i < towns.length; i++) {
+            edgeEnds += degree(towns[i]);
+        }
+        int[] subNeighbours = new int[edgeEnds];
+        // a big subgraph looks its towns up in a table, a small one searches for them
+        int[] localIndex = null;
+        if (towns.length >= getTownCount() / SUBGRAPH_TABLE_FRACTION) {
+            localIndex = new int[getTownCount()];
+            Arrays.fill(localIndex, -1);
+            for (int i = 0; i < towns.length; i++) {
+                localIndex[towns[i]] = i;
+            }
+        }
+        int write = 0;
+        for (int i = 0; i < towns.length; i++) {
+            int town = towns[i];
+            subNames[i] = names[town];
+            subX[i] = xCoords[town];
+            subY[i] = yCoords[town];
+            subOffsets[i] = write;
+            for (int j = offsets[town]; j < offsets[town + 1]; j++) {
+                // rows are ascending, so the local indices stay ascending too
+                int local = localIndex != null ? localIndex[neighbours[j]] : Arrays.binarySearch(towns, neighbours[j]);
+                if (local >= 0) {
+                    subNeighbours[write++] = local;
+                }
+            }
+        }
+        subOffsets[towns.length] = write;
+        return new TownGraph(subNames, subX, subY, subOffsets,
+                write == edgeEnds ? subNeighbours : Arrays.copyOf(subNeighbours, write));
+    }
+
+    /**
+     * Builds the compact form of a map in the shape the visualizer and serializer use.
+     * Neighbours that are not themselves keys of the map are ignored, and towns without
+     * an origin are placed at (0, 0). When the keys come from one TownRegistry, towns are
+     * matched up by id rather than by hashing them.
+     */
+    public static TownGraph fromMap(Map<Town, Set<Town>> map) {
+        Builder builder = new Builder(map.size());
+
+        // the keys can be found by id if they all have different ones that are not too sparse
+        Town[] townWithId = new Town[map.size() * 2 + 16];
+        for (Town town : map.keySet()) {
+            int id = town.getId();
+            if (id < 0 || id >= townWithId.length || townWithId[id] != null) {
+                townWithId = null;
+                break;
+            }
+            townWithId[id] = town;
+        }
+
+        int[] indexOfId = townWithId == null ? null : new int[townWithId.length];
+        Map<Town, Integer> indexOf = new HashMap<>();
+        for (Town town : map.keySet()) {
+            Point origin = town.getOrigin();
+            int index = origin == null ? builder.addTown(town.getName(), 0, 0)
+                    : builder.addTown(town.getName(), origin.x, origin.y);
+            if (indexOfId == null) {
+                indexOf.put(town, index);
+            } else {
+                indexOfId[town.getId()] = index;
+            }
+        }
+
+        for (Map.Entry<Town, Set<Town>> entry : map.entrySet()) {
+            int from = indexOf(entry.getKey(), townWithId, indexOfId, indexOf, map);
+            for (Town neighbour : entry.getValue()) {
+                int to = indexOf(neighbour, townWithId, indexOfId, indexOf, map);
+                if (to >= 0) {
+                    builder.addEdge(from, to);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the builder index of a town of the map, or -1 if it is not a key
+     */
+    private static int indexOf(Town town, Town[] townWithId, int[] indexOfId, Map<Town, Integer> indexOf,
+            Map<Town, Set<Town>> map) {
+        if (townWithId == null) {
+            Integer index = indexOf.get(town);
+            return index == null ? -1 : index;
+        }
+        int id = town.getId();
+        if (id >= 0 && id < townWithId.length && townWithId[id] == town) {
+            return indexOfId[id];
+        }
+        // an equal town that is not the key object itself, such as one from another registry
+        if (indexOf.isEmpty()) {
+            for (Town key : map.keySet()) {
+                indexOf.put(key, indexOfId[key.getId()]);
+            }
+        }
+        Integer index = indexOf.get(town);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Creates a fresh map of new Town objects, so the graph can be shown in the visualizer.
+     */
+    public Map<Town, Set<Town>> toMap() {
+        Town[] towns = toTowns();
+        Map<Town, Set<Town>> map = new HashMap<>();
+        for (int i = 0; i < towns.length; i++) {
+            Set<Town> adjacent = new HashSet<>();
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                adjacent.add(towns[neighbours[j]]);
+            }
+            map.put(towns[i], adjacent);
+        }
+        return map;
+    }
+
+    /**
+     * @return a new Town for every index, in index order, each with its index as its id
+     */
+    public Town[] toTowns() {
+        TownRegistry registry = toRegistry();
+        Town[] towns = new Town[names.length];
+        for (int i = 0; i < towns.length; i++) {
+            towns[i] = registry.get(i);
+        }
+        return towns;
+    }
+
+    /**
+     * @return a registry of new Towns in which every town's id is its index in this graph
+     */
+    public TownRegistry toRegistry() {
+        TownRegistry registry = new TownRegistry(names.length);
+        for (int i = 0; i < names.length; i++) {
+            // names are distinct and added in index order, so each id comes out equal to i
+            registry.intern(names[i], new Point(xCoords[i], yCoords[i]));
+        }
+        return registry;
+    }
+
+    /**
+     * Collects towns and roads in any order and packs them into a TownGraph.
+     * Towns are referred to by the index addTown returned for them.
+     */
+    public static class Builder {
+        private final Map<String, Integer> indexOf;
+        private final List<String> names;
+        private int[] xCoords;
+        private int[] yCoords;
+        private int[] edgeFrom;
+        private int[] edgeTo;
+        private int edgeCount;
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int expectedTowns) {
+            int capacity = Math.max(expectedTowns, 16);
+            this.indexOf = new HashMap<>();
+            this.names = new ArrayList<>(capacity);
+            this.xCoords = new int[capacity];
+            this.yCoords = new int[capacity];
+            this.edgeFrom = new int[capacity];
+            this.edgeTo = new int[capacity];
+            this.edgeCount = 0;
+        }
+
+        public int getTownCount() {
+            return names.size();
+        }
+
+        /**
+         * Adds a town, or moves it if a town with this name was already added.
+         * @return the builder index of the town
+         */
+        public int addTown(String name, int x, int y) {
+            Integer existing = indexOf.get(name);
+            int index;
+            if (existing == null) {
+                index = names.size();
+                names.add(name);
+                indexOf.put(name, index);
+                if (index == xCoords.length) {
+                    xCoords = Arrays.copyOf(xCoords, index * 2);
+                    yCoords = Arrays.copyOf(yCoords, index * 2);
+                }
+            } else {
+                index = existing;
+            }
+            xCoords[index] = x;
+            yCoords[index] = y;
+            return index;
+        }
+
+        /**
+         * @return the builder index of the town with the given name, or -1 if it was never added
+         */
+        public int indexOf(String name) {
+            Integer index = indexOf.get(name);
+            return index == null ? -1 : index;
+        }
+
+        public void addEdge(int town1, int town2) {
+            if (town1 < 0 || town1 >= names.size() || town2 < 0 || town2 >= names.size()) {
+                throw new IndexOutOfBoundsException("No town with index " + town1 + " or " + town2);
+            }
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = town1;
+            edgeTo[edgeCount] = town2;
+            edgeCount++;
+        }
+
+        public TownGraph build() {
+            SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.BUILD);
+            int townCount = names.size();
+
+            // number the towns in name order
+            String[] sortedNames = names.toArray(new String[0]);
+            Arrays.sort(sortedNames);
+            int[] rank = new int[townCount];
+            int[] sortedX = new int[townCount];
+            int[] sortedY = new int[townCount];
+            for (int i = 0; i < townCount; i++) {
+                int index = indexOf.get(sortedNames[i]);
+                rank[index] = i;
+                sortedX[i] = xCoords[index];
+                sortedY[i] = yCoords[index];
+            }
+
+            // count both directions of every road, then fill the rows
+            int[] offsets = new int[townCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                if (edgeFrom[e] != edgeTo[e]) {
+                    offsets[rank[edgeFrom[e]] + 1]++;
+                    offsets[rank[edgeTo[e]] + 1]++;
+                }
+            }
+            for (int i = 0; i < townCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] fill = Arrays.copyOf(offsets, townCount);
+            int[] neighbours = new int[offsets[townCount]];
+            for (int e = 0; e < edgeCount; e++) {
+                if (edgeFrom[e] != edgeTo[e]) {
+                    int from = rank[edgeFrom[e]];
+                    int to = rank[edgeTo[e]];
+                    neighbours[fill[from]++] = to;
+                    neighbours[fill[to]++] = from;
+                }
+            }
+
+            // sort each row and squeeze out duplicate roads in place
+            int write = 0;
+            int rowStart = 0;
+            for (int i = 0; i < townCount; i++) {
+                int rowEnd = offsets[i + 1];
+                Arrays.sort(neighbours, rowStart, rowEnd);
+                offsets[i] = write;
+                int previous = -1;
+                for (int j = rowStart; j < rowEnd; j++) {
+                    if (neighbours[j] != previous) {
+                        previous = neighbours[j];
+                        neighbours[write++] = previous;
+                    }
+                }
+                rowStart = rowEnd;
+            }
+            offsets[townCount] = write;
+
+            TownGraph graph = new TownGraph(sortedNames, sortedX, sortedY, offsets, Arrays.copyOf(neighbours, write));
+            SolverMetrics.endPhase(timer);
+            return graph;
+        }
+    }
+}
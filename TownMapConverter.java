@@ -0,0 +1,232 @@
+/*
+ * [TownMapConverter.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Turns a text map into a snapshot file without building the graph on the heap, giving the same
+ * towns, numbering and rows as a snapshot written from TownMapReader.read.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TownMapConverter {
+    private final TownNameTable names;
+    private int[] xCoords;
+    private int[] yCoords;
+    private int[] degree; // roads seen per town, by name table index
+    private long roadEnds;
+
+    private final FileChannel edgeChannel;
+    private final ByteBuffer edgeBuffer;
+
+    private TownMapConverter(int expectedTowns, FileChannel edgeChannel) {
+        int capacity = Math.max(expectedTowns, 16);
+        this.names = new TownNameTable(expectedTowns);
+        this.xCoords = new int[capacity];
+        this.yCoords = new int[capacity];
+        this.degree = new int[capacity];
+        this.edgeChannel = edgeChannel;
+        this.edgeBuffer = ByteBuffer.allocate(TownMapSnapshot.WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Converts a text map into a snapshot. Roads are spilled to a temporary file as they are
+     * read, then scattered into rows in a second, memory-mapped one, and each row is sorted and
+     * written out on its own. The temporary files go next to the snapshot.
+     * @throws MapFormatException if the text map has a bad record
+     * @throws IOException if the map has more road ends than a snapshot can index
+     */
+    public static void convert(File textFile, File snapshotFile) throws IOException {
+        Path directory = snapshotFile.getAbsoluteFile().toPath().getParent();
+        Path edgeFile = Files.createTempFile(directory, snapshotFile.getName(), ".edges");
+        Path rowFile = null;
+        try {
+            try (FileChannel edgeChannel = FileChannel.open(edgeFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                TownMapConverter converter = new TownMapConverter(TownMapReader.expectedTowns(textFile), edgeChannel);
+                converter.spill(textFile);
+
+                rowFile = Files.createTempFile(directory, snapshotFile.getName(), ".rows");
+                SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.BUILD);
+                try (FileChannel rowChannel = FileChannel.open(rowFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    converter.write(rowChannel, snapshotFile);
+                } finally {
+                    SolverMetrics.endPhase(timer);
+                }
+            }
+        } finally {
+            deleteTemporaryFile(edgeFile);
+            if (rowFile != null) {
+                deleteTemporaryFile(rowFile);
+            }
+        }
+    }
+
+    private static void deleteTemporaryFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException stillMapped) {
+            // some systems will not delete a file that is still mapped
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Reads the text map, keeping the towns and appending every road to the edge file.
+     */
+    private void spill(File textFile) throws IOException {
+        TownMapReader.read(textFile, names, new TownMapReader.Records() {
+            @Override
+            public void town(int index, int x, int y) {
+                if (index == xCoords.length) {
+                    xCoords = Arrays.copyOf(xCoords, index * 2);
+                    yCoords = Arrays.copyOf(yCoords, index * 2);
+                    degree = Arrays.copyOf(degree, index * 2);
+                }
+                xCoords[index] = x;
+                yCoords[index] = y;
+            }
+
+            @Override
+            public void edge(int town1, int town2) throws IOException {
+                // a road from a town to itself covers nothing, so like the builder, drop it
+                if (town1 == town2) {
+                    return;
+                }
+                if (edgeBuffer.remaining() < 8) {
+                    TownMapSnapshot.flush(edgeChannel, edgeBuffer);
+                }
+                edgeBuffer.putInt(town1).putInt(town2);
+                degree[town1]++;
+                degree[town2]++;
+                roadEnds += 2;
+            }
+        });
+        TownMapSnapshot.flush(edgeChannel, edgeBuffer);
+    }
+
+    private void write(FileChannel rowChannel, File snapshotFile) throws IOException {
+        int townCount = names.size();
+        if (roadEnds > Integer.MAX_VALUE) {
+            throw new IOException(String.format("%s has %d road ends, more than a snapshot can hold",
+                    snapshotFile.getName(), roadEnds));
+        }
+
+        // number the towns in name order, as TownGraph.Builder does
+        int[] order = names.sortedIndices();
+        int[] rank = new int[townCount];
+        for (int i = 0; i < townCount; i++) {
+            rank[order[i]] = i;
+        }
+        int[] offsets = new int[townCount + 1];
+        for (int i = 0; i < townCount; i++) {
+            offsets[i + 1] = offsets[i] + degree[order[i]];
+        }
+
+        // scatter both ends of every road into its row; degree is reused as each row's fill point
+        MappedIntArray rows = new MappedIntArray(rowChannel, FileChannel.MapMode.READ_WRITE, 0, roadEnds);
+        for (int i = 0; i < townCount; i++) {
+            degree[i] = offsets[i];
+        }
+        edgeChannel.position(0);
+        edgeBuffer.clear();
+        while (edgeChannel.read(edgeBuffer) >= 0) {
+            edgeBuffer.flip();
+            while (edgeBuffer.remaining() >= 8) {
+                int from = rank[edgeBuffer.getInt()];
+                int to = rank[edgeBuffer.getInt()];
+                rows.set(degree[from]++, to);
+                rows.set(degree[to]++, from);
+            }
+            edgeBuffer.compact();
+        }
+        degree = null;
+        rank = null;
+
+        TownMapWriter.writeAtomically(snapshotFile.toPath(), temporaryFile -> {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                writeSections(channel, rows, order, offsets);
+            }
+        });
+    }
+
+    private void writeSections(FileChannel channel, MappedIntArray rows, int[] order, int[] offsets)
+            throws IOException {
+        int townCount = order.length;
+        int nameByteCount = 0;
+        for (int i = 0; i < townCount; i++) {
+            nameByteCount += names.getNameLength(i);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TownMapSnapshot.WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        // the rows come last in the file but decide the offsets, so they are written first;
+        // each is sorted and its duplicate roads squeezed out, and offsets is rewritten to match
+        TownMapSnapshot.Layout layout = new TownMapSnapshot.Layout(townCount, 0, nameByteCount);
+        channel.position(layout.neighboursPosition);
+        int[] row = new int[16];
+        int write = 0;
+        int rowStart = 0;
+        for (int i = 0; i < townCount; i++) {
+            int rowEnd = offsets[i + 1];
+            int length = rowEnd - rowStart;
+            if (length > row.length) {
+                row = new int[Math.max(length, row.length * 2)];
+            }
+            rows.get(rowStart, row, length);
+            Arrays.sort(row, 0, length);
+            int kept = 0;
+            int previous = -1;
+            for (int j = 0; j < length; j++) {
+                if (row[j] != previous) {
+                    previous = row[j];
+                    row[kept++] = previous;
+                }
+            }
+            TownMapSnapshot.writeInts(channel, buffer, row, kept);
+            offsets[i] = write;
+            write += kept;
+            rowStart = rowEnd;
+        }
+        offsets[townCount] = write;
+        TownMapSnapshot.flush(channel, buffer);
+
+        channel.position(0);
+        TownMapSnapshot.writeHeader(buffer, townCount, write, nameByteCount);
+        int nameOffset = 0;
+        writeInt(channel, buffer, nameOffset);
+        for (int i = 0; i < townCount; i++) {
+            nameOffset += names.getNameLength(order[i]);
+            writeInt(channel, buffer, nameOffset);
+        }
+        byte[] name = new byte[64];
+        for (int i = 0; i < townCount; i++) {
+            int length = names.getNameLength(order[i]);
+            if (length > name.length) {
+                name = new byte[Math.max(length, name.length * 2)];
+            }
+            names.copyName(order[i], name, 0);
+            TownMapSnapshot.writeBytes(channel, buffer, name, length);
+        }
+        TownMapSnapshot.writeBytes(channel, buffer, new byte[TownMapSnapshot.padding(nameByteCount)]);
+        for (int[] coords : new int[][] {xCoords, yCoords}) {
+            for (int i = 0; i < townCount; i++) {
+                writeInt(channel, buffer, coords[order[i]]);
+            }
+        }
+        TownMapSnapshot.writeInts(channel, buffer, offsets);
+        TownMapSnapshot.flush(channel, buffer);
+    }
+
+    private static void writeInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < 4) {
+            TownMapSnapshot.flush(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * [TownMapReader.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * A streaming parser for the Town <id>{<x> <y>} and Edge <id> <id> text format that parses each
+ * record in place in one reusable buffer, reporting any other non-blank line with its line number.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TownMapReader {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] TOWN = TownMapSerializer.TOWN.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EDGE = TownMapSerializer.EDGE.getBytes(StandardCharsets.US_ASCII);
+
+    private final String fileName;
+    private final TownNameTable names;
+    private final Records records;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferStart; // start of the unparsed bytes
+    private int bufferEnd; // end of the bytes read so far
+    private boolean endOfFile;
+
+    private int lineNumber;
+    private int cursor;
+    private int lineEnd;
+
+    private TownMapReader(String fileName, TownNameTable names, Records records) {
+        this.fileName = fileName;
+        this.names = names;
+        this.records = records;
+    }
+
+    /**
+     * Where the parsed records go. Towns are referred to by their index in the name table,
+     * which new towns get in the order they first appear.
+     */
+    interface Records {
+        /**
+         * Defines a town, or moves it if its name was defined before.
+         */
+        void town(int index, int x, int y) throws IOException;
+
+        void edge(int town1, int town2) throws IOException;
+    }
+
+    /**
+     * Parses a map file into a graph.
+     * @throws MapFormatException if a line is not a valid record or an edge names a town
+     *         that has not been defined above it
+     */
+    public static TownGraph read(File inputFile) throws IOException {
+        int expectedTowns = expectedTowns(inputFile);
+        TownNameTable names = new TownNameTable(expectedTowns);
+        TownGraph.Builder builder = new TownGraph.Builder(expectedTowns);
+        read(inputFile, names, new Records() {
+            @Override
+            public void town(int index, int x, int y) {
+                // both number towns in the order they first appear, so the indices agree
+                builder.addTown(names.getName(index), x, y);
+            }
+
+            @Override
+            public void edge(int town1, int town2) {
+                builder.addEdge(town1, town2);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Parses a map file, handing each record to the given Records as it is read.
+     * @param names filled with the name of every town
+     */
+    static void read(File inputFile, TownNameTable names, Records records) throws IOException {
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            TownMapReader reader = new TownMapReader(inputFile.getName(), names, records);
+            SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.PARSE);
+            try {
+                reader.parse(channel);
+            } finally {
+                SolverMetrics.endPhase(timer);
+            }
+            SolverMetrics.add(SolverMetrics.Counter.LINES_READ, reader.lineNumber);
+            SolverMetrics.add(SolverMetrics.Counter.TOWNS_READ, reader.names.size());
+        }
+    }
+
+    /**
+     * @return a guess at the number of towns in a map file, for sizing tables up front
+     */
+    static int expectedTowns(File inputFile) {
+        // a town record is roughly 20 bytes and most files have a few edges per town
+        return (int) Math.min(1 << 24, inputFile.length() / 64);
+    }
+
+    private void parse(FileChannel channel) throws IOException {
+        while (nextLine(channel)) {
+            lineNumber++;
+            parseLine();
+        }
+    }
+
+    /**
+     * Makes sure a whole line is in the buffer and points cursor and lineEnd at it.
+     * @return false once the file is used up
+     */
+    private boolean nextLine(FileChannel channel) throws IOException {
+        int scan = bufferStart;
+        while (true) {
+            while (scan < bufferEnd && buffer[scan] != '\n') {
+                scan++;
+            }
+            if (scan < bufferEnd) {
+                cursor = bufferStart;
+                lineEnd = scan;
+                bufferStart = scan + 1;
+                return true;
+            }
+            if (endOfFile) {
+                if (bufferStart == bufferEnd) {
+                    return false;
+                }
+                // the last line has no newline
+                cursor = bufferStart;
+                lineEnd = bufferEnd;
+                bufferStart = bufferEnd;
+                return true;
+            }
+
+            // move the partial line to the front, growing the buffer for very long lines, and read more
+            int partial = bufferEnd - bufferStart;
+            if (partial == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else {
+                System.arraycopy(buffer, bufferStart, buffer, 0, partial);
+            }
+            bufferStart = 0;
+            bufferEnd = partial;
+            scan = partial;
+            int read = channel.read(ByteBuffer.wrap(buffer, bufferEnd, buffer.length - bufferEnd));
+            if (read < 0) {
+                endOfFile = true;
+            } else {
+                bufferEnd += read;
+            }
+        }
+    }
+
+    private void parseLine() throws IOException {
+        if (lineEnd > cursor && buffer[lineEnd - 1] == '\r') {
+            lineEnd--;
+        }
+        skipSpaces();
+        if (cursor == lineEnd) {
+            return;
+        }
+
+        if (startsWithKeyword(TOWN)) {
+            cursor += TOWN.length;
+            parseTown();
+        } else if (startsWithKeyword(EDGE)) {
+            cursor += EDGE.length;
+            parseEdge();
+        } else {
+            throw error("expected a Town or Edge record");
+        }
+    }
+
+    private void parseTown() throws IOException {
+        skipSpaces();
+        int nameStart = cursor;
+        while (cursor < lineEnd && buffer[cursor] != '{' && !isSpace(buffer[cursor])) {
+            cursor++;
+        }
+        int nameLength = cursor - nameStart;
+        if (nameLength == 0) {
+            throw error("town has no id");
+        }
+        skipSpaces();
+        expect('{');
+        skipSpaces();
+        int x = parseInt();
+        skipSpaces();
+        int y = parseInt();
+        skipSpaces();
+        expect('}');
+        expectEndOfLine();
+
+        int index = names.find(buffer, nameStart, nameLength);
+        if (index == -1) {
+            index = names.add(buffer, nameStart, nameLength);
+        }
+        records.town(index, x, y);
+    }
+
+    private void parseEdge() throws IOException {
+        int town1 = parseTownReference();
+        int town2 = parseTownReference();
+        expectEndOfLine();
+        records.edge(town1, town2);
+    }
+
+    private int parseTownReference() throws MapFormatException {
+        skipSpaces();
+        int nameStart = cursor;
+        while (cursor < lineEnd && !isSpace(buffer[cursor])) {
+            cursor++;
+        }
+        int nameLength = cursor - nameStart;
+        if (nameLength == 0) {
+            throw error("edge needs two town ids");
+        }
+        int index = names.find(buffer, nameStart, nameLength);
+        if (index == -1) {
+            String name = new String(buffer, nameStart, nameLength, StandardCharsets.UTF_8);
+            throw error("edge refers to town " + name + ", which is not defined above it");
+        }
+        return index;
+    }
+
+    private int parseInt() throws MapFormatException {
+        boolean negative = false;
+        if (cursor < lineEnd && buffer[cursor] == '-') {
+            negative = true;
+            cursor++;
+        }
+        int digitsStart = cursor;
+        long value = 0;
+        while (cursor < lineEnd && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+            value = value * 10 + (buffer[cursor] - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw error("coordinate is out of range");
+            }
+            cursor++;
+        }
+        if (cursor == digitsStart) {
+            throw error("expected a whole-number coordinate");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw error("coordinate is out of range");
+        }
+        return (int) value;
+    }
+
+    private boolean startsWithKeyword(byte[] keyword) {
+        if (lineEnd - cursor <= keyword.length) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length; i++) {
+            if (buffer[cursor + i] != keyword[i]) {
+                return false;
+            }
+        }
+        return isSpace(buffer[cursor + keyword.length]);
+    }
+
+    private void expect(char expected) throws MapFormatException {
+        if (cursor == lineEnd || buffer[cursor] != expected) {
+            throw error("expected '" + expected + "'");
+        }
+        cursor++;
+    }
+
+    private void expectEndOfLine() throws MapFormatException {
+        skipSpaces();
+        if (cursor != lineEnd) {
+            throw error("unexpected text at the end of the line");
+        }
+    }
+
+    private void skipSpaces() {
+        while (cursor < lineEnd && isSpace(buffer[cursor])) {
+            cursor++;
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private MapFormatException error(String message) {
+        return new MapFormatException(fileName, lineNumber, message);
+    }
+}
@@ -5,79 +5,64 @@
  * A helper class to read from/write to files 
  */
 
-import java.awt.Point;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.NoSuchFileException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 
 public class TownMapSerializer {
-    private static final String TOWN = "Town";
-    private static final String EDGE = "Edge";
+    static final String TOWN = "Town";
+    static final String EDGE = "Edge";
 
     public static void writeMapToFile(Map<Town, Set<Town>> map, File outputFile) {
         try {
-            PrintWriter fileWriter = new PrintWriter(outputFile);
-            // adding towns 
-            for (Town currentTown : map.keySet()) {
-                String pointString = String.format("{%d %d}", (int) currentTown.getOrigin().getX(),
-                        (int) currentTown.getOrigin().getY());
-                fileWriter.println("Town " + currentTown.getName() + pointString);
-            }
-
-            // adding edges 
-            for (Map.Entry<Town, Set<Town>> entry : map.entrySet()) {
-                Town currentTown = entry.getKey();
-                for (Town nextTown : entry.getValue()) {
-                    fileWriter.println("Edge " + currentTown.getName() + " " + nextTown.getName());
-                }
-            }
-            fileWriter.close();
-        } catch (FileNotFoundException fileNotFound) {
-            System.err.println(String.format("Error opening file to read: file %s not found", outputFile.getName()));
+            writeGraphToFile(TownGraph.fromMap(map), outputFile);
+        } catch (IOException writeError) {
+            System.err.println(String.format("Error writing map to file %s: %s", outputFile.getName(), writeError.getMessage()));
         }
     }
 
-    public static Map<Town, Set<Town>> readMapFromFile(File inputFile) {
-        Map<Town, Set<Town>> map = new HashMap<>();
-
-        // used to find towns that already exist
-        // we need to do this since only have a town's coordinates when reading it as a node,
-        // and not when connecting them as edges
-        // so we use this to a match town id to its respective town with coord information
-        Map<String, Town> townFinder = new HashMap<>();
+    /**
+     * Writes a graph in the text format, each road once, replacing the file only once the
+     * whole map has been written.
+     */
+    public static void writeGraphToFile(TownGraph graph, File outputFile) throws IOException {
+        TownMapWriter.write(graph, outputFile);
+    }
 
+    public static Map<Town, Set<Town>> readMapFromFile(File inputFile) {
         try {
-            Scanner fileReader = new Scanner(inputFile);
-            while (fileReader.hasNextLine()) {
-                String[] data = fileReader.nextLine().split("[ {}]"); // split spaces and curly braces
-                String type = data[0];
-                if (type.equals(TOWN)) {
-                    // we are reading a town's information
-                    String id = data[1];
-                    int xCoord = Integer.parseInt(data[2]);
-                    int yCoord = Integer.parseInt(data[3]);
-                    Town newTown = new Town(id, new Point(xCoord, yCoord));
-                    map.put(newTown, new HashSet<>());
-                    townFinder.put(id, newTown);
-                } else if (type.equals(EDGE)) {
-                    // we are reading an edge
-                    String id1 = data[1];
-                    String id2 = data[2];
-                    Town town1 = townFinder.get(id1); // use the town with a matching id that has coordinate info
-                    Town town2 = townFinder.get(id2);
-                    map.get(town1).add(town2);
-                    map.get(town2).add(town1);
-                }
-            }
-            fileReader.close();
-        } catch (FileNotFoundException fileNotFound) {
+            return readGraphFromFile(inputFile).toMap();
+        } catch (ClosedByInterruptException interrupted) {
+            // the read was cancelled, which is not an error worth reporting
+        } catch (FileNotFoundException | NoSuchFileException fileNotFound) {
             System.err.println(String.format("Error opening file to read: file %s not found", inputFile.getName()));
+        } catch (IOException readError) {
+            System.err.println(String.format("Error reading map: %s", readError.getMessage()));
         }
-        return map;
+        return new HashMap<>();
+    }
+
+    /**
+     * Reads a map file straight into the compact form the solvers run on.
+     * @throws MapFormatException with the offending line number if the file is malformed
+     */
+    public static TownGraph readGraphFromFile(File inputFile) throws IOException {
+        return TownMapReader.read(inputFile);
+    }
+
+    /**
+     * Saves a graph in the binary snapshot format, which loads far faster than the text format.
+     */
+    public static void writeGraphToSnapshot(TownGraph graph, File outputFile) throws IOException {
+        TownMapSnapshot.write(graph, outputFile);
+    }
+
+    public static TownGraph readGraphFromSnapshot(File inputFile) throws IOException {
+        return TownMapSnapshot.read(inputFile);
     }
-}
\ No newline at end of file
+}
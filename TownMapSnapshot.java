@@ -0,0 +1,315 @@
+/*
+ * [TownMapSnapshot.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * A versioned binary file format for TownGraph, laid out as in Layout, that loads with bulk copies
+ * out of a memory-mapped file instead of parsing text and hashing names.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TownMapSnapshot {
+    private static final int MAGIC = 0x50414D54; // "TMAP" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    static final int WRITE_BUFFER_BYTES = 1 << 20;
+    static final int MAX_MAP_BYTES = 1 << 30;
+
+    public static void write(TownGraph graph, File outputFile) throws IOException {
+        int townCount = graph.getTownCount();
+        byte[][] nameBytes = new byte[townCount][];
+        int[] nameOffsets = new int[townCount + 1];
+        for (int i = 0; i < townCount; i++) {
+            nameBytes[i] = graph.getName(i).getBytes(StandardCharsets.UTF_8);
+            nameOffsets[i + 1] = nameOffsets[i] + nameBytes[i].length;
+        }
+        int nameByteCount = nameOffsets[townCount];
+
+        int[] xCoords = new int[townCount];
+        int[] yCoords = new int[townCount];
+        for (int i = 0; i < townCount; i++) {
+            xCoords[i] = graph.getX(i);
+            yCoords[i] = graph.getY(i);
+        }
+
+        TownMapWriter.writeAtomically(outputFile.toPath(), temporaryFile -> {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                writeSections(channel, graph, nameBytes, nameOffsets, xCoords, yCoords);
+            }
+        });
+    }
+
+    private static void writeSections(FileChannel channel, TownGraph graph, byte[][] nameBytes, int[] nameOffsets,
+            int[] xCoords, int[] yCoords) throws IOException {
+        int townCount = graph.getTownCount();
+        int nameByteCount = nameOffsets[townCount];
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader(buffer, townCount, graph.neighbours().length, nameByteCount);
+        writeInts(channel, buffer, nameOffsets);
+        for (byte[] name : nameBytes) {
+            writeBytes(channel, buffer, name);
+        }
+        writeBytes(channel, buffer, new byte[padding(nameByteCount)]);
+        writeInts(channel, buffer, xCoords);
+        writeInts(channel, buffer, yCoords);
+        writeInts(channel, buffer, graph.offsets());
+        writeInts(channel, buffer, graph.neighbours());
+        flush(channel, buffer);
+    }
+
+    /**
+     * Maps a snapshot file and copies its arrays straight into a TownGraph.
+     * @throws IOException if the file is not a snapshot, has another version, is cut short or
+     *         does not hold a valid graph
+     */
+    public static TownGraph read(File inputFile) throws IOException {
+        SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.PARSE);
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            Layout layout = Layout.read(channel, inputFile);
+            int townCount = layout.townCount;
+            int neighbourCount = layout.neighbourCount;
+            int[] nameOffsets = readInts(channel, layout.nameOffsetsPosition, townCount + 1);
+            if (nameOffsets[0] != 0 || nameOffsets[townCount] != layout.nameByteCount) {
+                throw corrupt(inputFile, "name offsets do not match the name byte count");
+            }
+            for (int i = 0; i < townCount; i++) {
+                if (nameOffsets[i] > nameOffsets[i + 1]) {
+                    throw corrupt(inputFile, "name offsets are not ascending");
+                }
+            }
+            String[] names = readNames(channel, layout.namesPosition, nameOffsets, layout.nameByteCount);
+            int[] xCoords = readInts(channel, layout.xPosition, townCount);
+            int[] yCoords = readInts(channel, layout.yPosition, townCount);
+            int[] offsets = readInts(channel, layout.offsetsPosition, townCount + 1);
+            int[] neighbours = readInts(channel, layout.neighboursPosition, neighbourCount);
+
+            if (offsets[0] != 0 || offsets[townCount] != neighbourCount) {
+                throw corrupt(inputFile, "adjacency offsets do not match the neighbour count");
+            }
+            for (int i = 0; i < townCount; i++) {
+                if (offsets[i] > offsets[i + 1]) {
+                    throw corrupt(inputFile, "adjacency offsets are not ascending");
+                }
+            }
+            for (int i = 1; i < townCount; i++) {
+                if (names[i - 1].compareTo(names[i]) >= 0) {
+                    throw corrupt(inputFile, "town names are not in sorted order");
+                }
+            }
+            for (int neighbour : neighbours) {
+                if (neighbour < 0 || neighbour >= townCount) {
+                    throw corrupt(inputFile, "neighbour index out of range");
+                }
+            }
+            checkRows(inputFile, offsets, neighbours);
+            SolverMetrics.add(SolverMetrics.Counter.TOWNS_READ, townCount);
+            return TownGraph.fromArrays(names, xCoords, yCoords, offsets, neighbours);
+        } finally {
+            SolverMetrics.endPhase(timer);
+        }
+    }
+
+    /**
+     * Checks that every neighbour row is strictly ascending, skips its own town and is matched by
+     * the row of each neighbour, as TownGraph.fromArrays requires.
+     */
+    private static void checkRows(File inputFile, int[] offsets, int[] neighbours) throws IOException {
+        // next[t] is the first entry of t's row not yet matched by a lower town listing t; towns are
+        // visited in order, so a symmetric graph matches each row's lower entries front to back
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int town = 0; town < next.length; town++) {
+            int end = offsets[town + 1];
+            for (int i = offsets[town]; i < end; i++) {
+                if (i > offsets[town] && neighbours[i - 1] >= neighbours[i]) {
+                    throw corrupt(inputFile, "neighbours of town " + town + " are not strictly ascending");
+                }
+            }
+            if (next[town] < end && neighbours[next[town]] < town) {
+                throw corrupt(inputFile, "town " + neighbours[next[town]] + " does not list its neighbour " + town);
+            }
+            for (int i = next[town]; i < end; i++) {
+                int neighbour = neighbours[i];
+                if (neighbour == town) {
+                    throw corrupt(inputFile, "town " + town + " is its own neighbour");
+                }
+                if (next[neighbour] == offsets[neighbour + 1] || neighbours[next[neighbour]] != town) {
+                    throw corrupt(inputFile, "town " + neighbour + " does not list its neighbour " + town);
+                }
+                next[neighbour]++;
+            }
+        }
+    }
+
+    private static String[] readNames(FileChannel channel, long position, int[] nameOffsets, int nameByteCount)
+            throws IOException {
+        String[] names = new String[nameOffsets.length - 1];
+        if (nameByteCount == 0) {
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "";
+            }
+            return names;
+        }
+        // names are decoded from a window that is moved along as needed
+        long windowStart = position;
+        long windowEnd = position;
+        MappedByteBuffer window = null;
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < names.length; i++) {
+            int length = nameOffsets[i + 1] - nameOffsets[i];
+            long start = position + nameOffsets[i];
+            if (window == null || start + length > windowEnd) {
+                windowStart = start;
+                windowEnd = Math.min(position + nameByteCount, start + Math.max(MAX_MAP_BYTES, length));
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+            }
+            if (length > scratch.length) {
+                scratch = new byte[length];
+            }
+            window.get((int) (start - windowStart), scratch, 0, length);
+            names[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        int done = 0;
+        while (done < count) {
+            int chunk = Math.min(count - done, MAX_MAP_BYTES / 4);
+            channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * done, 4L * chunk)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, done, chunk);
+            done += chunk;
+        }
+        return values;
+    }
+
+    static void writeHeader(ByteBuffer buffer, int townCount, int neighbourCount, int nameByteCount) {
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(townCount).putInt(neighbourCount).putInt(nameByteCount).putInt(0);
+    }
+
+    static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        writeInts(channel, buffer, values, values.length);
+    }
+
+    /**
+     * Buffers the first count values, flushing the buffer to the channel whenever it fills up.
+     */
+    static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            if (buffer.remaining() < 4) {
+                flush(channel, buffer);
+            }
+            int chunk = Math.min(count - done, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, done, chunk);
+            buffer.position(buffer.position() + chunk * 4);
+            done += chunk;
+        }
+    }
+
+    static void writeBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        writeBytes(channel, buffer, bytes, bytes.length);
+    }
+
+    static void writeBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            int chunk = Math.min(count - done, buffer.remaining());
+            buffer.put(bytes, done, chunk);
+            done += chunk;
+        }
+    }
+
+    static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static int padding(int byteCount) {
+        return (4 - (byteCount & 3)) & 3;
+    }
+
+    static IOException corrupt(File file, String message) {
+        return new IOException(String.format("%s: %s", file.getName(), message));
+    }
+
+    /**
+     * The section sizes from a snapshot header and where each section starts in the file. The
+     * sections, all integers little-endian, are:
+     *     header       magic "TMAP", version, town count, neighbour count, name byte count, reserved
+     *     name offsets int[town count + 1] into the name bytes
+     *     name bytes   UTF-8 names in town order, padded to a multiple of 4
+     *     x, y         int[town count] each
+     *     offsets      int[town count + 1]
+     *     neighbours   int[neighbour count]
+     */
+    static final class Layout {
+        final int townCount;
+        final int neighbourCount;
+        final int nameByteCount;
+        final long nameOffsetsPosition;
+        final long namesPosition;
+        final long xPosition;
+        final long yPosition;
+        final long offsetsPosition;
+        final long neighboursPosition;
+        final long fileSize;
+
+        Layout(int townCount, int neighbourCount, int nameByteCount) {
+            this.townCount = townCount;
+            this.neighbourCount = neighbourCount;
+            this.nameByteCount = nameByteCount;
+            nameOffsetsPosition = HEADER_BYTES;
+            namesPosition = nameOffsetsPosition + 4L * (townCount + 1);
+            xPosition = namesPosition + nameByteCount + padding(nameByteCount);
+            yPosition = xPosition + 4L * townCount;
+            offsetsPosition = yPosition + 4L * townCount;
+            neighboursPosition = offsetsPosition + 4L * (townCount + 1);
+            fileSize = neighboursPosition + 4L * neighbourCount;
+        }
+
+        /**
+         * Checks the header of a snapshot file and that the file is as long as it says.
+         */
+        static Layout read(FileChannel channel, File inputFile) throws IOException {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw corrupt(inputFile, "file is too short for a header");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw corrupt(inputFile, "not a town map snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw corrupt(inputFile, "unsupported snapshot version " + version);
+            }
+            int townCount = header.getInt();
+            int neighbourCount = header.getInt();
+            int nameByteCount = header.getInt();
+            if (townCount < 0 || neighbourCount < 0 || nameByteCount < 0) {
+                throw corrupt(inputFile, "negative section size");
+            }
+            Layout layout = new Layout(townCount, neighbourCount, nameByteCount);
+            if (fileSize != layout.fileSize) {
+                throw corrupt(inputFile, "expected " + layout.fileSize + " bytes but found " + fileSize);
+            }
+            return layout;
+        }
+    }
+}
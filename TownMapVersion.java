@@ -0,0 +1,519 @@
+/*
+ * [TownMapVersion.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * One immutable version of a map: its towns, roads and stations, kept by town id in a tree of
+ * 32-slot arrays so an edit copies only the path to what it changed and diff() skips shared subtrees.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public final class TownMapVersion {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final Town[] NO_NEIGHBOURS = new Town[0];
+    private static final AtomicLong NEXT_GRAPH_ID = new AtomicLong();
+
+    /**
+     * The version with no towns.
+     */
+    public static final TownMapVersion EMPTY = new TownMapVersion(new Object[WIDTH], 0, 0, 0, 0,
+            NEXT_GRAPH_ID.getAndIncrement());
+
+    // leaves hold Entry objects and every other level holds child arrays; empty slots are null
+    private final Object[] root;
+    private final int shift; // how far an id is shifted right to pick its slot in the root
+    private final int townCount;
+    private final int roadCount;
+    private final int stationCount;
+    private final long graphId;
+
+    /**
+     * Told about each difference between two versions by diff(). Towns are added before the
+     * roads to them and removed after the roads from them.
+     */
+    public interface Changes {
+        default void townAdded(Town town) {
+        }
+
+        default void townRemoved(Town town) {
+        }
+
+        default void roadAdded(Town town1, Town town2) {
+        }
+
+        default void roadRemoved(Town town1, Town town2) {
+        }
+
+        default void stationChanged(Town town, boolean hasStation) {
+        }
+    }
+
+    private TownMapVersion(Object[] root, int shift, int townCount, int roadCount, int stationCount, long graphId) {
+        this.root = root;
+        this.shift = shift;
+        this.townCount = townCount;
+        this.roadCount = roadCount;
+        this.stationCount = stationCount;
+        this.graphId = graphId;
+    }
+
+    /**
+     * Builds a version holding every town and road of a map, with no stations. The towns must
+     * already be in a TownRegistry, such as one made by TownRegistry.of(map.keySet()).
+     * @throws IllegalArgumentException if a town has no registry id, two towns share one, or a
+     *         road leads to a town that is not a key of the map
+     */
+    public static TownMapVersion fromMap(Map<Town, Set<Town>> map) {
+        int size = 0;
+        for (Town town : map.keySet()) {
+            requireId(town);
+            size = Math.max(size, town.getId() + 1);
+        }
+        Town[] towns = new Town[size];
+        for (Town town : map.keySet()) {
+            if (towns[town.getId()] != null) {
+                throw new IllegalArgumentException("Town " + town.getName() + " has the id of another town");
+            }
+            towns[town.getId()] = town;
+        }
+
+        // a road is kept at both of its towns even if the map only lists it at one
+        int[] degree = new int[size];
+        for (Map.Entry<Town, Set<Town>> entry : map.entrySet()) {
+            for (Town neighbour : entry.getValue()) {
+                if (neighbour.getId() < 0 || neighbour.getId() >= size || towns[neighbour.getId()] != neighbour) {
+                    throw new IllegalArgumentException("Town " + neighbour.getName() + " is not in the map");
+                }
+                if (neighbour != entry.getKey()) {
+                    degree[entry.getKey().getId()]++;
+                    degree[neighbour.getId()]++;
+                }
+            }
+        }
+        int[][] rows = new int[size][];
+        for (int id = 0; id < size; id++) {
+            rows[id] = towns[id] == null ? null : new int[degree[id]];
+        }
+        Arrays.fill(degree, 0);
+        for (Map.Entry<Town, Set<Town>> entry : map.entrySet()) {
+            Town town = entry.getKey();
+            for (Town neighbour : entry.getValue()) {
+                if (neighbour != town) {
+                    rows[town.getId()][degree[town.getId()]++] = neighbour.getId();
+                    rows[neighbour.getId()][degree[neighbour.getId()]++] = town.getId();
+                }
+            }
+        }
+
+        Object[] level = new Object[size];
+        long roadEnds = 0;
+        for (int id = 0; id < size; id++) {
+            if (towns[id] != null) {
+                int[] row = rows[id];
+                Arrays.sort(row);
+                int kept = 0;
+                for (int i = 0; i < row.length; i++) {
+                    if (kept == 0 || row[kept - 1] != row[i]) {
+                        row[kept++] = row[i];
+                    }
+                }
+                Town[] neighbours = kept == 0 ? NO_NEIGHBOURS : new Town[kept];
+                for (int i = 0; i < kept; i++) {
+                    neighbours[i] = towns[row[i]];
+                }
+                roadEnds += kept;
+                level[id] = new Entry(towns[id], neighbours, false);
+                rows[id] = null;
+            }
+        }
+
+        // group each level into arrays of 32 until one array is left
+        int shift = 0;
+        while (true) {
+            Object[] parents = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                Object[] node = Arrays.copyOfRange(level, i << BITS, (i + 1) << BITS);
+                for (Object child : node) {
+                    if (child != null) {
+                        parents[i] = node;
+                        break;
+                    }
+                }
+            }
+            if (parents.length <= 1) {
+                Object[] root = parents.length == 1 && parents[0] != null ? (Object[]) parents[0] : new Object[WIDTH];
+                return new TownMapVersion(root, shift, map.size(), (int) (roadEnds / 2), 0,
+                        NEXT_GRAPH_ID.getAndIncrement());
+            }
+            level = parents;
+            shift += BITS;
+        }
+    }
+
+    public int getTownCount() {
+        return townCount;
+    }
+
+    public int getRoadCount() {
+        return roadCount;
+    }
+
+    /**
+     * @return a number shared only by versions with the same towns and roads, such as this one
+     *         and those made from it by withStations(), so it can key a solve cache
+     */
+    public long getGraphId() {
+        return graphId;
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public boolean isEmpty() {
+        return townCount == 0;
+    }
+
+    public boolean contains(Town town) {
+        Entry entry = entry(town.getId());
+        return entry != null && entry.town == town;
+    }
+
+    /**
+     * @return the town with this registry id, or null if it is not in this version
+     */
+    public Town getTown(int id) {
+        Entry entry = entry(id);
+        return entry == null ? null : entry.town;
+    }
+
+    public boolean hasStation(Town town) {
+        Entry entry = entry(town.getId());
+        return entry != null && entry.station;
+    }
+
+    public boolean isConnected(Town town1, Town town2) {
+        Entry entry = entry(town1.getId());
+        return entry != null && entry.indexOf(town2.getId()) >= 0;
+    }
+
+    /**
+     * Calls the action for every town, in id order.
+     */
+    public void forEachTown(Consumer<Town> action) {
+        forEachEntry(root, shift, entry -> action.accept(entry.town));
+    }
+
+    /**
+     * @return the towns with a fire station, in id order
+     */
+    public Set<Town> getStations() {
+        Set<Town> stations = new LinkedHashSet<>();
+        forEachEntry(root, shift, entry -> {
+            if (entry.station) {
+                stations.add(entry.town);
+            }
+        });
+        return stations;
+    }
+
+    /**
+     * @return a new map from each town to the set of its neighbours, for code that takes maps
+     */
+    public Map<Town, Set<Town>> toMap() {
+        Map<Town, Set<Town>> map = new HashMap<>(Math.max(16, (int) (townCount / 0.75f) + 1));
+        forEachEntry(root, shift, entry -> {
+            Set<Town> neighbours = new HashSet<>(Math.max(4, (int) (entry.neighbours.length / 0.75f) + 1));
+            Collections.addAll(neighbours, entry.neighbours);
+            map.put(entry.town, neighbours);
+        });
+        return map;
+    }
+
+    /**
+     * @return a version with the town added, with no roads and no station, or this version if
+     *         the town is already in it
+     */
+    public TownMapVersion withTown(Town town) {
+        requireId(town);
+        Entry existing = entry(town.getId());
+        if (existing != null) {
+            if (existing.town != town) {
+                throw new IllegalArgumentException("Town " + town.getName() + " has the id of another town");
+            }
+            return this;
+        }
+        return put(new Entry(town, NO_NEIGHBOURS, false), 1, 0, 0);
+    }
+
+    /**
+     * @return a version with a road between two of its towns, or this version if they are
+     *         already connected or are the same town
+     */
+    public TownMapVersion withRoad(Town town1, Town town2) {
+        Entry entry1 = require(town1);
+        Entry entry2 = require(town2);
+        if (town1 == town2 || entry1.indexOf(town2.getId()) >= 0) {
+            return this;
+        }
+        return put(entry1.withNeighbour(town2), 0, 1, 0).put(entry2.withNeighbour(town1), 0, 0, 0);
+    }
+
+    /**
+     * @param stations the towns that have a fire station; any not in this version are ignored
+     * @return a version with exactly these stations, sharing every town whose station did not change
+     */
+    public TownMapVersion withStations(Set<Town> stations) {
+        int[] stationChange = new int[1];
+        Object[] newRoot = withStations(root, shift, stations, stationChange);
+        return newRoot == root ? this : new TownMapVersion(newRoot, shift, townCount, roadCount,
+                stationCount + stationChange[0], graphId);
+    }
+
+    /**
+     * @return the node itself if no station under it changed, or else a copy with the changes
+     */
+    private static Object[] withStations(Object[] node, int level, Set<Town> stations, int[] stationChange) {
+        Object[] copy = null;
+        for (int slot = 0; slot < WIDTH; slot++) {
+            Object child = node[slot];
+            if (child == null) {
+                continue;
+            }
+            Object updated = child;
+            if (level > 0) {
+                updated = withStations((Object[]) child, level - BITS, stations, stationChange);
+            } else {
+                Entry entry = (Entry) child;
+                boolean station = stations.contains(entry.town);
+                if (entry.station != station) {
+                    updated = new Entry(entry.town, entry.neighbours, station);
+                    stationChange[0] += station ? 1 : -1;
+                }
+            }
+            if (updated != child) {
+                if (copy == null) {
+                    copy = node.clone();
+                }
+                copy[slot] = updated;
+            }
+        }
+        return copy == null ? node : copy;
+    }
+
+    /**
+     * Tells the listener everything that would turn this version into another. Subtrees the
+     * two versions share are skipped, so this costs about as much as the edits between them.
+     */
+    public void diff(TownMapVersion other, Changes changes) {
+        Object[] from = root;
+        Object[] to = other.root;
+        int level = Math.max(shift, other.shift);
+        // the shallower tree is what the deeper one's first slots hold
+        for (int s = shift; s < level; s += BITS) {
+            from = wrap(from);
+        }
+        for (int s = other.shift; s < level; s += BITS) {
+            to = wrap(to);
+        }
+        // the towns are added first and removed last, so roads always join towns that are there
+        diff(from, to, level, 0, changes, Phase.ADDED_TOWNS);
+        diff(from, to, level, 0, changes, Phase.ROADS_AND_STATIONS);
+        diff(from, to, level, 0, changes, Phase.REMOVED_TOWNS);
+    }
+
+    private static Object[] wrap(Object[] node) {
+        Object[] parent = new Object[WIDTH];
+        parent[0] = node;
+        return parent;
+    }
+
+    private enum Phase {
+        ADDED_TOWNS, ROADS_AND_STATIONS, REMOVED_TOWNS
+    }
+
+    private void diff(Object[] from, Object[] to, int level, int base, Changes changes, Phase phase) {
+        if (from == to) {
+            return;
+        }
+        for (int slot = 0; slot < WIDTH; slot++) {
+            Object fromChild = from == null ? null : from[slot];
+            Object toChild = to == null ? null : to[slot];
+            if (fromChild == toChild) {
+                continue;
+            }
+            int id = base | (slot << level);
+            if (level > 0) {
+                diff((Object[]) fromChild, (Object[]) toChild, level - BITS, id, changes, phase);
+            } else {
+                diffEntry((Entry) fromChild, (Entry) toChild, changes, phase);
+            }
+        }
+    }
+
+    private static void diffEntry(Entry from, Entry to, Changes changes, Phase phase) {
+        if (phase == Phase.ADDED_TOWNS) {
+            if (from == null) {
+                changes.townAdded(to.town);
+            }
+            return;
+        }
+        if (phase == Phase.REMOVED_TOWNS) {
+            if (to == null) {
+                changes.townRemoved(from.town);
+            }
+            return;
+        }
+
+        // a road changes both of its towns, so each is reported from its lower id only
+        Town town = from == null ? to.town : from.town;
+        int id = town.getId();
+        Town[] before = from == null ? NO_NEIGHBOURS : from.neighbours;
+        Town[] after = to == null ? NO_NEIGHBOURS : to.neighbours;
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            int removed = i < before.length ? before[i].getId() : Integer.MAX_VALUE;
+            int added = j < after.length ? after[j].getId() : Integer.MAX_VALUE;
+            if (removed == added) {
+                i++;
+                j++;
+            } else if (removed < added) {
+                if (id < removed) {
+                    changes.roadRemoved(town, before[i]);
+                }
+                i++;
+            } else {
+                if (id < added) {
+                    changes.roadAdded(town, after[j]);
+                }
+                j++;
+            }
+        }
+        boolean stationBefore = from != null && from.station;
+        boolean stationAfter = to != null && to.station;
+        if (stationBefore != stationAfter) {
+            changes.stationChanged(town, stationAfter);
+        }
+    }
+
+    private Entry entry(int id) {
+        if (id < 0 || (id >>> shift) >= WIDTH) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(id >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (Entry) node[id & MASK];
+    }
+
+    private static void forEachEntry(Object[] node, int level, Consumer<Entry> action) {
+        for (Object child : node) {
+            if (child == null) {
+                continue;
+            }
+            if (level > 0) {
+                forEachEntry((Object[]) child, level - BITS, action);
+            } else {
+                action.accept((Entry) child);
+            }
+        }
+    }
+
+    /**
+     * What a version holds for one town. The neighbours are sorted by id, for merging in diff().
+     */
+    private static final class Entry {
+        private final Town town;
+        private final Town[] neighbours;
+        private final boolean station;
+
+        private Entry(Town town, Town[] neighbours, boolean station) {
+            this.town = town;
+            this.neighbours = neighbours;
+            this.station = station;
+        }
+
+        /**
+         * @return the neighbour's position, or -(insertion point) - 1 if the towns are not neighbours
+         */
+        private int indexOf(int id) {
+            int low = 0;
+            int high = neighbours.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleId = neighbours[middle].getId();
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        private Entry withNeighbour(Town neighbour) {
+            int at = -indexOf(neighbour.getId()) - 1;
+            Town[] towns = new Town[neighbours.length + 1];
+            System.arraycopy(neighbours, 0, towns, 0, at);
+            towns[at] = neighbour;
+            System.arraycopy(neighbours, at, towns, at + 1, neighbours.length - at);
+            return new Entry(town, towns, station);
+        }
+    }
+
+    private static void requireId(Town town) {
+        if (town.getId() < 0) {
+            throw new IllegalArgumentException("Town " + town.getName() + " is not in a registry");
+        }
+    }
+
+    private Entry require(Town town) {
+        requireId(town);
+        Entry entry = entry(town.getId());
+        if (entry == null || entry.town != town) {
+            throw new IllegalArgumentException("Town " + town.getName() + " is not in this version");
+        }
+        return entry;
+    }
+
+    /**
+     * @return a version with the entry stored under its town's id, copying the path to it
+     */
+    private TownMapVersion put(Entry entry, int townChange, int roadChange, int stationChange) {
+        int id = entry.town.getId();
+        Object[] newRoot = root;
+        int newShift = shift;
+        while ((id >>> newShift) >= WIDTH) {
+            newRoot = wrap(newRoot);
+            newShift += BITS;
+        }
+        newRoot = newRoot.clone();
+        Object[] node = newRoot;
+        for (int level = newShift; level > 0; level -= BITS) {
+            int slot = (id >>> level) & MASK;
+            Object[] child = node[slot] == null ? new Object[WIDTH] : ((Object[]) node[slot]).clone();
+            node[slot] = child;
+            node = child;
+        }
+        node[id & MASK] = entry;
+        return new TownMapVersion(newRoot, newShift, townCount + townChange, roadCount + roadChange,
+                stationCount + stationChange, NEXT_GRAPH_ID.getAndIncrement());
+    }
+}
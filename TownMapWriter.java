@@ -0,0 +1,180 @@
+/*
+ * [TownMapWriter.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Writes a TownGraph in the text map format read by TownMapReader, encoding records by hand into one
+ * buffer and replacing the target only once a temporary file holding every road once is complete.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class TownMapWriter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] TOWN = (TownMapSerializer.TOWN + " ").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EDGE = (TownMapSerializer.EDGE + " ").getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+    private int size;
+
+    private TownMapWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static void write(TownGraph graph, File outputFile) throws IOException {
+        SolverMetrics.Timer timer = SolverMetrics.startPhase(SolverMetrics.Phase.WRITE);
+        try {
+            writeAtomically(outputFile.toPath(), temporaryFile -> {
+                try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                    TownMapWriter writer = new TownMapWriter(channel);
+                    writer.writeGraph(graph);
+                    writer.flush();
+                }
+            });
+        } finally {
+            SolverMetrics.endPhase(timer);
+        }
+    }
+
+    /**
+     * Runs the given write against a temporary file next to the target, forces it to disk, then
+     * moves it over the target. If the write fails the target is left untouched and the temporary
+     * file is removed. Without the force, a crash soon after the move can leave the target empty
+     * or cut short on filesystems that write the rename out before the data.
+     */
+    static void writeAtomically(Path target, FileWrite write) throws IOException {
+        // created like any other new file so the result gets the usual permissions
+        Path temporaryFile = target.resolveSibling(target.getFileName() + "." + System.nanoTime() + ".tmp");
+        Files.createFile(temporaryFile);
+        try {
+            write.writeTo(temporaryFile);
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException notSupported) {
+                Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * A write of a whole file's contents, for writeAtomically.
+     */
+    interface FileWrite {
+        void writeTo(Path file) throws IOException;
+    }
+
+    private void writeGraph(TownGraph graph) throws IOException {
+        int townCount = graph.getTownCount();
+        for (int i = 0; i < townCount; i++) {
+            writeBytes(TOWN);
+            writeName(graph.getName(i));
+            writeByte('{');
+            writeInt(graph.getX(i));
+            writeByte(' ');
+            writeInt(graph.getY(i));
+            writeByte('}');
+            writeByte('\n');
+        }
+
+        // rows are symmetric, so writing only the higher-indexed end covers each road once
+        int[] offsets = graph.offsets();
+        int[] neighbours = graph.neighbours();
+        for (int i = 0; i < townCount; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                if (neighbours[j] > i) {
+                    writeBytes(EDGE);
+                    writeName(graph.getName(i));
+                    writeByte(' ');
+                    writeName(graph.getName(neighbours[j]));
+                    writeByte('\n');
+                }
+            }
+        }
+    }
+
+    private void writeName(String name) throws IOException {
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                // rare non-ASCII name, let the encoder handle it
+                writeBytes(name.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        if (size + length > buffer.length) {
+            flush();
+        }
+        if (length > buffer.length) {
+            writeBytes(name.getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) name.charAt(i);
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (size + 11 > buffer.length) {
+            flush();
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[size++] = '-';
+            remaining = -remaining;
+        }
+        // write the digits backwards into place
+        int digits = 1;
+        for (long bound = 10; bound <= remaining; bound *= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        size += digits;
+    }
+
+    private void writeByte(char value) throws IOException {
+        if (size == buffer.length) {
+            flush();
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int done = 0;
+        while (done < bytes.length) {
+            if (size == buffer.length) {
+                flush();
+            }
+            int chunk = Math.min(bytes.length - done, buffer.length - size);
+            System.arraycopy(bytes, done, buffer, size, chunk);
+            size += chunk;
+            done += chunk;
+        }
+    }
+
+    private void flush() throws IOException {
+        wrapped.clear().limit(size);
+        while (wrapped.hasRemaining()) {
+            channel.write(wrapped);
+        }
+        size = 0;
+    }
+}
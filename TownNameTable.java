@@ -0,0 +1,179 @@
+/*
+ * [TownNameTable.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * An open-addressing table from town names to dense indices, in insertion order from 0, that looks
+ * names up straight from the bytes of a file so readers never build a String to find a town.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TownNameTable {
+    private int[] slots; // index + 1 of the town in each slot, 0 when empty
+    private int[] hashes;
+    private int[] nameStarts;
+    private int[] nameLengths;
+    private byte[] namePool;
+    private int poolSize;
+    private int size;
+
+    public TownNameTable(int expectedTowns) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedTowns * 2) - 1) << 1;
+        this.slots = new int[capacity];
+        this.hashes = new int[Math.max(16, expectedTowns)];
+        this.nameStarts = new int[hashes.length];
+        this.nameLengths = new int[hashes.length];
+        this.namePool = new byte[hashes.length * 8];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the name held in bytes[start, start + length), or -1 if it was never added
+     */
+    public int find(byte[] bytes, int start, int length) {
+        int hash = hash(bytes, start, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (hashes[index] == hash && matches(index, bytes, start, length)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a name that is not in the table yet.
+     * @return the new index
+     */
+    public int add(byte[] bytes, int start, int length) {
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            nameStarts = Arrays.copyOf(nameStarts, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+        }
+        if (poolSize + length > namePool.length) {
+            namePool = Arrays.copyOf(namePool, Math.max(namePool.length * 2, poolSize + length));
+        }
+        System.arraycopy(bytes, start, namePool, poolSize, length);
+        int index = size++;
+        hashes[index] = hash(bytes, start, length);
+        nameStarts[index] = poolSize;
+        nameLengths[index] = length;
+        poolSize += length;
+
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(index);
+        }
+        return index;
+    }
+
+    public String getName(int index) {
+        return new String(namePool, nameStarts[index], nameLengths[index], StandardCharsets.UTF_8);
+    }
+
+    public int getNameLength(int index) {
+        return nameLengths[index];
+    }
+
+    /**
+     * Copies the UTF-8 bytes of a name into destination, starting at offset.
+     */
+    public void copyName(int index, byte[] destination, int offset) {
+        System.arraycopy(namePool, nameStarts[index], destination, offset, nameLengths[index]);
+    }
+
+    /**
+     * @return every index, ordered the way String.compareTo orders their names
+     */
+    public int[] sortedIndices() {
+        // a bottom-up merge sort of the indices, comparing names where they sit in the pool
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+        int[] merged = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int left = 0; left < size; left += 2 * width) {
+                int middle = Math.min(left + width, size);
+                int right = Math.min(left + 2 * width, size);
+                int i = left;
+                int j = middle;
+                for (int k = left; k < right; k++) {
+                    if (j == right || (i < middle && compareNames(sorted[i], sorted[j]) <= 0)) {
+                        merged[k] = sorted[i++];
+                    } else {
+                        merged[k] = sorted[j++];
+                    }
+                }
+            }
+            int[] swap = sorted;
+            sorted = merged;
+            merged = swap;
+        }
+        return sorted;
+    }
+
+    private int compareNames(int index1, int index2) {
+        int start1 = nameStarts[index1];
+        int start2 = nameStarts[index2];
+        int length = Math.min(nameLengths[index1], nameLengths[index2]);
+        for (int i = 0; i < length; i++) {
+            int b1 = namePool[start1 + i] & 0xff;
+            int b2 = namePool[start2 + i] & 0xff;
+            if (b1 != b2) {
+                if (b1 < 0x80 && b2 < 0x80) {
+                    return b1 - b2;
+                }
+                // UTF-8 and UTF-16 disagree on the order of some characters, so let String decide
+                return getName(index1).compareTo(getName(index2));
+            }
+        }
+        return nameLengths[index1] - nameLengths[index2];
+    }
+
+    private boolean matches(int index, byte[] bytes, int start, int length) {
+        if (nameLengths[index] != length) {
+            return false;
+        }
+        int offset = nameStarts[index];
+        for (int i = 0; i < length; i++) {
+            if (namePool[offset + i] != bytes[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(int index) {
+        int mask = slots.length - 1;
+        int slot = hashes[index] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = index + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < start + length; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        // spread the high bits down since slots are picked with a mask
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * [TownRegistry.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Gives each town name one Town object and a dense id in registration order from 0, so code holding
+ * towns from the same registry can index arrays by getId() instead of hashing names.
+ */
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TownRegistry {
+    private final Map<String, Town> byName;
+    private final List<Town> byId;
+
+    public TownRegistry() {
+        this(16);
+    }
+
+    public TownRegistry(int expectedTowns) {
+        byName = new HashMap<>(Math.max(16, (int) (expectedTowns / 0.75f) + 1));
+        byId = new ArrayList<>(expectedTowns);
+    }
+
+    /**
+     * Registers every town of a collection, such as the keys of a map, keeping their objects.
+     */
+    public static TownRegistry of(Collection<Town> towns) {
+        TownRegistry registry = new TownRegistry(towns.size());
+        for (Town town : towns) {
+            registry.register(town);
+        }
+        return registry;
+    }
+
+    /**
+     * @return the town with this name, created with the given origin if it is new
+     */
+    public Town intern(String name, Point origin) {
+        Town town = byName.get(name);
+        if (town == null) {
+            town = new Town(name, origin);
+            add(town);
+        }
+        return town;
+    }
+
+    /**
+     * Adds an existing Town object and gives it the next id. A town can only keep the id of
+     * one registry, so it should not be registered in another while this one is in use.
+     * @return the town already registered under the same name, or the given town if there was none
+     */
+    public Town register(Town town) {
+        Town existing = byName.get(town.getName());
+        if (existing != null) {
+            return existing;
+        }
+        add(town);
+        return town;
+    }
+
+    private void add(Town town) {
+        town.setId(byId.size());
+        byName.put(town.getName(), town);
+        byId.add(town);
+    }
+
+    /**
+     * @return the town with this id
+     * @throws IndexOutOfBoundsException if no town has it
+     */
+    public Town get(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return the town with this name, or null if there is none
+     */
+    public Town find(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * @return true if this exact Town object is the one registered under its id
+     */
+    public boolean contains(Town town) {
+        int id = town.getId();
+        return id >= 0 && id < byId.size() && byId.get(id) == town;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * [TownSpatialIndex.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Grids over town origins and roads that let the visualizer find the town under the cursor
+ * and draw only what is on screen
+ */
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class TownSpatialIndex {
+    private final int cellSize;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    // roadLevels.get(level) holds the roads no longer than cellSize << level, each in the cell of
+    // that size holding the top-left corner of its bounding box
+    private final List<Map<Long, Set<Road>>> roadLevels = new ArrayList<>();
+
+    public TownSpatialIndex(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Indexes every town of a map and each of its roads once.
+     */
+    public static TownSpatialIndex fromMap(Map<Town, Set<Town>> map, int cellSize) {
+        TownSpatialIndex index = new TownSpatialIndex(cellSize);
+        for (Town town : map.keySet()) {
+            index.addTown(town);
+        }
+        for (Map.Entry<Town, Set<Town>> entry : map.entrySet()) {
+            Town town = entry.getKey();
+            for (Town neighbour : entry.getValue()) {
+                // roads are stored in both sets, so only add each from its lower-named end
+                Set<Town> reverse = map.get(neighbour);
+                if (town.getName().compareTo(neighbour.getName()) < 0 || reverse == null || !reverse.contains(town)) {
+                    index.addRoad(town, neighbour);
+                }
+            }
+        }
+        return index;
+    }
+
+    public void clear() {
+        cells.clear();
+        roadLevels.clear();
+    }
+
+    public void addTown(Town town) {
+        Point origin = town.getOrigin();
+        cellAt(Math.floorDiv(origin.x, cellSize), Math.floorDiv(origin.y, cellSize)).towns.add(town);
+    }
+
+    /**
+     * Removes a town, but not its roads.
+     */
+    public void removeTown(Town town) {
+        Point origin = town.getOrigin();
+        Cell cell = cells.get(key(Math.floorDiv(origin.x, cellSize), Math.floorDiv(origin.y, cellSize)));
+        if (cell != null) {
+            cell.towns.remove(town);
+        }
+    }
+
+    public void addRoad(Town town1, Town town2) {
+        Road road = new Road(town1, town2);
+        int level = road.level(cellSize);
+        while (roadLevels.size() <= level) {
+            roadLevels.add(new HashMap<>());
+        }
+        roadLevels.get(level).computeIfAbsent(road.cellKey(cellSize, level), key -> new HashSet<>()).add(road);
+    }
+
+    /**
+     * Removes the road between two towns, whichever way round it was added.
+     */
+    public void removeRoad(Town town1, Town town2) {
+        Road road = new Road(town1, town2);
+        int level = road.level(cellSize);
+        if (level >= roadLevels.size()) {
+            return;
+        }
+        Map<Long, Set<Road>> roadCells = roadLevels.get(level);
+        long key = road.cellKey(cellSize, level);
+        Set<Road> roads = roadCells.get(key);
+        if (roads != null && roads.remove(road) && roads.isEmpty()) {
+            roadCells.remove(key);
+        }
+    }
+
+    /**
+     * @return the town closest to the point whose origin is within the radius, or null if none is
+     */
+    public Town findTown(Point point, int radius) {
+        Town closest = null;
+        long closestDistance = (long) radius * radius;
+        int fromX = Math.floorDiv(point.x - radius, cellSize);
+        int toX = Math.floorDiv(point.x + radius, cellSize);
+        int fromY = Math.floorDiv(point.y - radius, cellSize);
+        int toY = Math.floorDiv(point.y + radius, cellSize);
+        for (int cellY = fromY; cellY <= toY; cellY++) {
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                Cell cell = cells.get(key(cellX, cellY));
+                if (cell == null) {
+                    continue;
+                }
+                for (Town town : cell.towns) {
+                    long distanceX = point.x - town.getOrigin().x;
+                    long distanceY = point.y - town.getOrigin().y;
+                    long distance = distanceX * distanceX + distanceY * distanceY;
+                    if (distance <= closestDistance) {
+                        closest = town;
+                        closestDistance = distance;
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @return the towns whose origin lies inside the area
+     */
+    public List<Town> townsIn(Rectangle area) {
+        List<Town> found = new ArrayList<>();
+        forEachCell(area, cell -> {
+            for (Town town : cell.towns) {
+                if (area.contains(town.getOrigin())) {
+                    found.add(town);
+                }
+            }
+        });
+        return found;
+    }
+
+    /**
+     * @return the roads whose line crosses the area
+     */
+    public List<Road> roadsIn(Rectangle area) {
+        List<Road> found = new ArrayList<>();
+        forEachRoadNear(area, road -> {
+            Point from = road.from.getOrigin();
+            Point to = road.to.getOrigin();
+            if (area.intersectsLine(from.x, from.y, to.x, to.y)) {
+                found.add(road);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Visits every road whose bounding box can overlap the area. A road's box starts in its own
+     * cell and is no bigger than one cell, so it can only reach into the next cell right and down.
+     */
+    private void forEachRoadNear(Rectangle area, Consumer<Road> action) {
+        for (int level = 0; level < roadLevels.size(); level++) {
+            Map<Long, Set<Road>> roadCells = roadLevels.get(level);
+            if (roadCells.isEmpty()) {
+                continue;
+            }
+            long size = (long) cellSize << level;
+            long fromX = Math.floorDiv(area.x, size) - 1;
+            long toX = Math.floorDiv(area.x + (long) area.width, size);
+            long fromY = Math.floorDiv(area.y, size) - 1;
+            long toY = Math.floorDiv(area.y + (long) area.height, size);
+            if ((toX - fromX + 1) * (toY - fromY + 1) > roadCells.size()) {
+                // fewer cells hold roads than the area covers, so look at each of those instead
+                for (Map.Entry<Long, Set<Road>> entry : roadCells.entrySet()) {
+                    long cellX = entry.getKey() >> 32;
+                    long cellY = (int) (long) entry.getKey();
+                    if (cellX >= fromX && cellX <= toX && cellY >= fromY && cellY <= toY) {
+                        entry.getValue().forEach(action);
+                    }
+                }
+                continue;
+            }
+            for (long cellY = fromY; cellY <= toY; cellY++) {
+                for (long cellX = fromX; cellX <= toX; cellX++) {
+                    Set<Road> roads = roadCells.get(key((int) cellX, (int) cellY));
+                    if (roads != null) {
+                        roads.forEach(action);
+                    }
+                }
+            }
+        }
+    }
+
+    private void forEachCell(Rectangle area, Consumer<Cell> action) {
+        int fromX = Math.floorDiv(area.x, cellSize);
+        int toX = Math.floorDiv(area.x + area.width, cellSize);
+        int fromY = Math.floorDiv(area.y, cellSize);
+        int toY = Math.floorDiv(area.y + area.height, cellSize);
+        for (int cellY = fromY; cellY <= toY; cellY++) {
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                Cell cell = cells.get(key(cellX, cellY));
+                if (cell != null) {
+                    action.accept(cell);
+                }
+            }
+        }
+    }
+
+    private Cell cellAt(int cellX, int cellY) {
+        return cells.computeIfAbsent(key(cellX, cellY), key -> new Cell());
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private static class Cell {
+        private final List<Town> towns = new ArrayList<>(2);
+    }
+
+    /**
+     * A road between two towns, as stored in the index. Roads are equal when they join the same
+     * two towns, either way round.
+     */
+    public static class Road {
+        private final Town from;
+        private final Town to;
+
+        private Road(Town from, Town to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public Town getFrom() {
+            return from;
+        }
+
+        public Town getTo() {
+            return to;
+        }
+
+        /**
+         * @return the first level whose cells are at least as wide and as tall as the road
+         */
+        private int level(int cellSize) {
+            long span = Math.max(Math.abs((long) from.getOrigin().x - to.getOrigin().x),
+                    Math.abs((long) from.getOrigin().y - to.getOrigin().y));
+            int level = 0;
+            while (((long) cellSize << level) < span) {
+                level++;
+            }
+            return level;
+        }
+
+        private long cellKey(int cellSize, int level) {
+            long size = (long) cellSize << level;
+            long cellX = Math.floorDiv(Math.min(from.getOrigin().x, to.getOrigin().x), size);
+            long cellY = Math.floorDiv(Math.min(from.getOrigin().y, to.getOrigin().y), size);
+            return key((int) cellX, (int) cellY);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Road)) {
+                return false;
+            }
+            Road other = (Road) obj;
+            return (from == other.from && to == other.to) || (from == other.to && to == other.from);
+        }
+
+        @Override
+        public int hashCode() {
+            return from.hashCode() ^ to.hashCode();
+        }
+    }
+}
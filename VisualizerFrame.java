@@ -9,6 +9,8 @@ import java.awt.BorderLayout;
 import javax.swing.JFrame;
 
 public class VisualizerFrame extends JFrame {
+    private static final long serialVersionUID = 1L;
+
     private VisualizerPanel panel;
     private final int WIDTH = (int) (getToolkit().getScreenSize().getWidth() / 1.2);
     private final int HEIGHT = (int) (getToolkit().getScreenSize().getHeight() / 1.2);
@@ -21,7 +23,7 @@ public class VisualizerFrame extends JFrame {
         this.setTitle("Community Fire Station Planner");
         this.getContentPane().add(BorderLayout.CENTER, panel);
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        this.setResizable(false);
+        this.setResizable(true);
         this.setFocusable(true);
         this.requestFocusInWindow();
         this.setSize(WIDTH, HEIGHT);
@@ -5,91 +5,129 @@
  * The panel class of the visualizer
  */
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import javax.swing.AbstractAction;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
-public class VisualizerPanel extends JPanel implements MouseListener, MouseMotionListener {
+public class VisualizerPanel extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener {
+    private static final long serialVersionUID = 1L;
 
     private static final int CIRCLE_RADIUS = 50;
+    private static final int INDEX_CELL_SIZE = 128;
+    private static final BasicStroke TOWN_STROKE = new BasicStroke(4.0f);
+    private static final BasicStroke CLUSTER_STROKE = new BasicStroke(1.0f);
     private static final Color SOLVE_BUTTON_COLOR = new Color(144, 238, 144);
     private static final Color EXIT_BUTTON_COLOR = new Color(255, 127, 127);
     private static final Color FIRE_STATION_COLOR = new Color(231, 31, 31);
+    private static final long SOLVE_CACHE_BYTES = 16 << 20;
+    // cluster cells double in width per level, from one index cell up to past the int range
+    private static final int CLUSTER_LEVELS = 24;
+    private static final int CLUSTER_PIXELS = 40; // the narrowest a cluster cell is drawn
+    private static final int DENSE_CELL_TOWNS = 64; // more towns than this in a cell are drawn as a cluster
+    private static final double TOWN_MIN_SCALE = 0.25; // below this, the map is only drawn as clusters
+    private static final double MIN_SCALE = 1.0 / 4096;
+    private static final double MAX_SCALE = 8;
+    private static final double ZOOM_STEP = 1.25; // per notch of the mouse wheel
+    private static final int UNDO_LIMIT = 100;
 
     private final int PANEL_WIDTH; 
     private final int PANEL_HEIGHT; 
 
-    private FireStationSolver solver;
-    private Set<Town> fireStations = new HashSet<>();
-    private Map<Town, Set<Town>> mainMap = new HashMap<>();
+    private IncrementalFireStationSolver solver; // kept between solves so edits can be repaired in place
+    private TownMapVersion solverMap; // the version whose towns and roads the solver has
+    private final SolveCache solveCache = new SolveCache(SOLVE_CACHE_BYTES); // so solving an unchanged map again is instant
+    // the map being shown; each edit, solve, undo or redo swaps in another version
+    private TownMapVersion currentMap = TownMapVersion.EMPTY;
+    private final Deque<TownMapVersion> undoVersions = new ArrayDeque<>(); // most recent first
+    private final Deque<TownMapVersion> redoVersions = new ArrayDeque<>();
+    private TownRegistry registry = new TownRegistry(); // every town of every version since the map was opened, by id
+    private TownSpatialIndex townIndex = new TownSpatialIndex(INDEX_CELL_SIZE); // kept in step with currentMap
+    private TownClusterGrid clusters = new TownClusterGrid(INDEX_CELL_SIZE, CLUSTER_LEVELS); // so is this
+
+    // a map point p is drawn at p * scale + offset; the view is panned by dragging with the right button
+    private double scale = 1;
+    private double offsetX, offsetY;
+    private Point panStart; // where the current pan started, or null when not panning
+    private double panStartOffsetX, panStartOffsetY;
 
     private boolean edgeMode = false;
     private Town edgeOriginTown, edgeDestinationTown; // destination town will become a neighbor of the origin town 
     private Point cursorPoint = new Point();
 
+    // solves and file loads run here, off the event dispatch thread; null when nothing is running
+    private SwingWorker<?, ?> backgroundJob;
+    private final JButton solveButton, clearButton, saveButton, openFileButton, cancelButton, undoButton, redoButton;
+    private final JLabel statusLabel;
+
+    private BufferedImage sceneLayer; // edges, towns and labels, redrawn only when sceneDirty is set
+    private boolean sceneDirty = true;
+
     public VisualizerPanel(int screenWidth, int screenHeight) {
         this.setLayout(null);
         this.PANEL_WIDTH = screenWidth; 
         this.PANEL_HEIGHT = screenHeight; 
 
         // solve button
-        JButton solveButton = new JButton("Solve");
+        solveButton = new JButton("Solve");
         solveButton.setBounds(7, 25, 140, 30);
         solveButton.setBackground(SOLVE_BUTTON_COLOR);
         solveButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                solver = new FireStationSolver(mainMap);
-                fireStations = solver.solve();
-
-                // set fire stations to have the correct property
-                for (Town town : mainMap.keySet()) {
-                    if (fireStations.contains(town)) {
-                        town.setHasFireStation(true);
-                    } else {
-                        town.setHasFireStation(false);
-                    }
-                }
-                repaint();
+                // edits since the last solve were only repaired locally, so always solve in full again
+                runInBackground(new SolveJob(currentMap), "Solving...");
             }
         });
 
         // clear button
-        JButton clearButton = new JButton("Clear");
+        clearButton = new JButton("Clear");
         clearButton.setBounds(7, 55, 140, 30);
         clearButton.setBackground(Color.WHITE);
         clearButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!mainMap.isEmpty()) {
-                    mainMap.clear();
-                }
-                if (!fireStations.isEmpty()) {
-                    fireStations.clear();
-                }
-                repaint();
+                setMap(TownMapVersion.EMPTY, new TownRegistry(), new TownSpatialIndex(INDEX_CELL_SIZE),
+                        new TownClusterGrid(INDEX_CELL_SIZE, CLUSTER_LEVELS));
             }
         });
 
         // save to file button
-        JButton saveButton = new JButton("Save to file");
+        saveButton = new JButton("Save to file");
         saveButton.setBounds(7, 85, 140, 30);
         saveButton.setBackground(Color.WHITE);
         saveButton.addActionListener(new ActionListener() {
@@ -99,13 +137,13 @@ public class VisualizerPanel extends JPanel implements MouseListener, MouseMotio
                 int returnValue = fileChooser.showSaveDialog(null);
                 if (returnValue == JFileChooser.APPROVE_OPTION) {
                     File selectedFile = fileChooser.getSelectedFile();
-                    TownMapSerializer.writeMapToFile(mainMap, selectedFile);
+                    TownMapSerializer.writeMapToFile(currentMap.toMap(), selectedFile);
                 }
             }
         });
 
         // open from file button
-        JButton openFileButton = new JButton("Open from file");
+        openFileButton = new JButton("Open from file");
         openFileButton.setBounds(7, 115, 140, 30);
         openFileButton.setBackground(Color.WHITE);
         openFileButton.addActionListener(new ActionListener() {
@@ -115,9 +153,8 @@ public class VisualizerPanel extends JPanel implements MouseListener, MouseMotio
                 int returnValue = fileChooser.showOpenDialog(null);
                 if (returnValue == JFileChooser.APPROVE_OPTION) {
                     File selectedFile = fileChooser.getSelectedFile();
-                    mainMap = TownMapSerializer.readMapFromFile(selectedFile);
+                    runInBackground(new OpenJob(selectedFile), "Opening " + selectedFile.getName() + "...");
                 }
-                repaint();
             }
         });
 
@@ -132,46 +169,433 @@ public class VisualizerPanel extends JPanel implements MouseListener, MouseMotio
             }
         });
 
+        // cancel button, only enabled while a solve or load is running
+        cancelButton = new JButton("Cancel");
+        cancelButton.setBounds(7, 175, 140, 30);
+        cancelButton.setBackground(Color.WHITE);
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (backgroundJob != null) {
+                    backgroundJob.cancel(true);
+                }
+            }
+        });
+
+        // undo and redo buttons, also on Ctrl+Z and Ctrl+Y
+        undoButton = new JButton("Undo");
+        undoButton.setBounds(7, 205, 140, 30);
+        undoButton.setBackground(Color.WHITE);
+        undoButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        redoButton = new JButton("Redo");
+        redoButton.setBounds(7, 235, 140, 30);
+        redoButton.setBackground(Color.WHITE);
+        redoButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
+        getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+        getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+        getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
+        updateUndoButtons();
+
+        // progress of the running job
+        statusLabel = new JLabel();
+        statusLabel.setBounds(10, 265, 400, 20);
+
         // add buttons to panel
         this.add(solveButton);
         this.add(clearButton);
         this.add(saveButton);
         this.add(openFileButton);
         this.add(exitButton);
+        this.add(cancelButton);
+        this.add(undoButton);
+        this.add(redoButton);
+        this.add(statusLabel);
 
         this.addMouseListener(this);
         this.addMouseMotionListener(this);
+        this.addMouseWheelListener(this);
         this.setVisible(true);
     }
 
-    private void drawTown(Graphics2D g2d, Town town) {
-        g2d.setStroke(new BasicStroke(4.0f)); // makes circles thicker 
+    /**
+     * Replaces the map being shown and edited, dropping any previous solve and the undo history.
+     */
+    public void setMap(Map<Town, Set<Town>> map) {
+        TownRegistry mapRegistry = TownRegistry.of(map.keySet());
+        setMap(TownMapVersion.fromMap(map), mapRegistry, TownSpatialIndex.fromMap(map, INDEX_CELL_SIZE),
+                TownClusterGrid.fromTowns(map.keySet(), INDEX_CELL_SIZE, CLUSTER_LEVELS));
+    }
+
+    private void setMap(TownMapVersion version, TownRegistry mapRegistry, TownSpatialIndex mapIndex,
+            TownClusterGrid mapClusters) {
+        currentMap = version;
+        registry = mapRegistry;
+        townIndex = mapIndex;
+        clusters = mapClusters;
+        solver = null;
+        solverMap = null;
+        undoVersions.clear();
+        redoVersions.clear();
+        updateUndoButtons();
+        resetEdgeMode();
+        fitView();
+        invalidateScene();
+    }
+
+    /**
+     * Makes an edited version the shown one, as a step that can be undone. A solved map is
+     * kept solved by repairing the solver's stations for the edit.
+     */
+    private void commit(TownMapVersion edited) {
+        if (solver != null) {
+            syncSolver(edited);
+            edited = edited.withStations(solver.getStations());
+            solverMap = edited;
+        }
+        if (edited == currentMap) {
+            return;
+        }
+        undoVersions.push(currentMap);
+        if (undoVersions.size() > UNDO_LIMIT) {
+            undoVersions.removeLast();
+        }
+        redoVersions.clear();
+        show(edited);
+    }
+
+    private void undo() {
+        if (undoVersions.isEmpty() || isOpening()) {
+            return;
+        }
+        redoVersions.push(currentMap);
+        show(undoVersions.pop());
+    }
+
+    private void redo() {
+        if (redoVersions.isEmpty() || isOpening()) {
+            return;
+        }
+        undoVersions.push(currentMap);
+        show(redoVersions.pop());
+    }
+
+    /**
+     * Swaps in another version of the map, changing the spatial index and cluster counts only
+     * where the two versions differ.
+     */
+    private void show(TownMapVersion version) {
+        currentMap.diff(version, new TownMapVersion.Changes() {
+            @Override
+            public void townAdded(Town town) {
+                townIndex.addTown(town);
+                clusters.addTown(town, false); // its station, if it has one, comes as a change
+            }
+
+            @Override
+            public void townRemoved(Town town) {
+                townIndex.removeTown(town);
+                clusters.removeTown(town, false); // its station was taken away first
+            }
+
+            @Override
+            public void roadAdded(Town town1, Town town2) {
+                townIndex.addRoad(town1, town2);
+            }
+
+            @Override
+            public void roadRemoved(Town town1, Town town2) {
+                townIndex.removeRoad(town1, town2);
+            }
+
+            @Override
+            public void stationChanged(Town town, boolean hasStation) {
+                clusters.stationChanged(town, hasStation);
+            }
+        });
+        currentMap = version;
+        if (edgeOriginTown != null && !version.contains(edgeOriginTown)) {
+            resetEdgeMode();
+        }
+        updateUndoButtons();
+        invalidateScene();
+    }
+
+    /**
+     * Replays every edit between the solver's version and another into the solver, undone
+     * ones included, since it can take towns and roads away as well as add them.
+     */
+    private void syncSolver(TownMapVersion version) {
+        solverMap.diff(version, new TownMapVersion.Changes() {
+            @Override
+            public void townAdded(Town town) {
+                solver.addTown(town);
+            }
+
+            @Override
+            public void townRemoved(Town town) {
+                solver.removeTown(town);
+            }
+
+            @Override
+            public void roadAdded(Town town1, Town town2) {
+                solver.addEdge(town1, town2);
+            }
+
+            @Override
+            public void roadRemoved(Town town1, Town town2) {
+                solver.removeEdge(town1, town2);
+            }
+        });
+        solverMap = version;
+    }
+
+    private void updateUndoButtons() {
+        undoButton.setEnabled(!undoVersions.isEmpty());
+        redoButton.setEnabled(!redoVersions.isEmpty());
+    }
+
+    /**
+     * Shows the map at its normal size if it fits on the panel, and otherwise zooms out until it does.
+     */
+    private void fitView() {
+        scale = 1;
+        offsetX = 0;
+        offsetY = 0;
+        Rectangle bounds = clusters.getBounds();
+        int width = getWidth() > 0 ? getWidth() : PANEL_WIDTH;
+        int height = getHeight() > 0 ? getHeight() : PANEL_HEIGHT;
+        if (bounds == null || (bounds.x >= 0 && bounds.y >= 0 && bounds.x + bounds.width + CIRCLE_RADIUS <= width
+                && bounds.y + bounds.height + CIRCLE_RADIUS <= height)) {
+            return;
+        }
+        bounds.grow(CIRCLE_RADIUS, CIRCLE_RADIUS);
+        scale = clampScale(Math.min((double) width / bounds.width, (double) height / bounds.height));
+        offsetX = (width - bounds.width * scale) / 2 - bounds.x * scale;
+        offsetY = (height - bounds.height * scale) / 2 - bounds.y * scale;
+    }
+
+    /**
+     * Zooms by a factor, keeping the map point under the given panel point where it is.
+     */
+    private void zoomAt(Point anchor, double factor) {
+        double newScale = clampScale(scale * factor);
+        offsetX = anchor.x - (anchor.x - offsetX) * newScale / scale;
+        offsetY = anchor.y - (anchor.y - offsetY) * newScale / scale;
+        scale = newScale;
+        invalidateScene();
+    }
+
+    private static double clampScale(double value) {
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, value));
+    }
+
+    private Point toMap(Point panelPoint) {
+        return new Point((int) Math.floor((panelPoint.x - offsetX) / scale), (int) Math.floor((panelPoint.y - offsetY) / scale));
+    }
+
+    private int toPanelX(double mapX) {
+        return (int) Math.round(mapX * scale + offsetX);
+    }
+
+    private int toPanelY(double mapY) {
+        return (int) Math.round(mapY * scale + offsetY);
+    }
+
+    /**
+     * Starts a solve or load on a worker thread. A solve works on the version that was shown
+     * when it started, which never changes, so the map can be edited while it runs.
+     */
+    private void runInBackground(SwingWorker<?, ?> job, String status) {
+        resetEdgeMode();
+        backgroundJob = job;
+        setBusy(true);
+        statusLabel.setText(status);
+        job.execute();
+    }
+
+    private void setBusy(boolean busy) {
+        solveButton.setEnabled(!busy);
+        clearButton.setEnabled(!busy);
+        saveButton.setEnabled(!busy);
+        openFileButton.setEnabled(!busy);
+        cancelButton.setEnabled(busy);
+    }
+
+    /**
+     * @return true while a map is being read, which replaces the shown one when it is done
+     */
+    private boolean isOpening() {
+        return backgroundJob instanceof OpenJob;
+    }
+
+    /**
+     * Solves a version of the map in full and, back on the event dispatch thread, swaps in the
+     * new solver, repaired for any edits made since the version was taken, and its stations.
+     */
+    private class SolveJob extends SwingWorker<IncrementalFireStationSolver, int[]> {
+        private final TownMapVersion version;
+
+        SolveJob(TownMapVersion version) {
+            this.version = version;
+        }
+
+        @Override
+        protected IncrementalFireStationSolver doInBackground() {
+            return new IncrementalFireStationSolver(version.toMap(), (stationCount, uncoveredCount) -> {
+                publish(new int[] {stationCount, uncoveredCount});
+                return !isCancelled();
+            }, solveCache, version.getGraphId());
+        }
+
+        @Override
+        protected void process(List<int[]> progress) {
+            int[] latest = progress.get(progress.size() - 1);
+            statusLabel.setText(String.format("Solving: %d stations placed, %d towns uncovered", latest[0], latest[1]));
+        }
+
+        @Override
+        protected void done() {
+            backgroundJob = null;
+            setBusy(false);
+            if (isCancelled()) {
+                statusLabel.setText("Solve cancelled");
+                return;
+            }
+            try {
+                solver = get();
+                solverMap = version;
+                commit(currentMap);
+                statusLabel.setText(String.format("Solved: %d stations", currentMap.getStationCount()));
+            } catch (InterruptedException | ExecutionException solveError) {
+                System.err.println(String.format("Error solving map: %s", solveError.getCause()));
+                statusLabel.setText("Solve failed");
+            }
+        }
+    }
+
+    /**
+     * Reads a map file and, back on the event dispatch thread, replaces the shown map with it.
+     */
+    private class OpenJob extends SwingWorker<TownMapVersion, Void> {
+        private final File file;
+        // built here too, so a big map does not hold up the event dispatch thread
+        private TownRegistry mapRegistry;
+        private TownSpatialIndex mapIndex;
+        private TownClusterGrid mapClusters;
+
+        OpenJob(File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected TownMapVersion doInBackground() {
+            // cancelling interrupts the read, which the serializer treats as an empty map
+            Map<Town, Set<Town>> map = TownMapSerializer.readMapFromFile(file);
+            mapRegistry = TownRegistry.of(map.keySet());
+            mapIndex = TownSpatialIndex.fromMap(map, INDEX_CELL_SIZE);
+            mapClusters = TownClusterGrid.fromTowns(map.keySet(), INDEX_CELL_SIZE, CLUSTER_LEVELS);
+            return TownMapVersion.fromMap(map);
+        }
+
+        @Override
+        protected void done() {
+            backgroundJob = null;
+            setBusy(false);
+            if (isCancelled()) {
+                statusLabel.setText("Open cancelled");
+                return;
+            }
+            try {
+                setMap(get(), mapRegistry, mapIndex, mapClusters);
+                statusLabel.setText(String.format("Opened %s: %d towns", file.getName(), currentMap.getTownCount()));
+            } catch (InterruptedException | ExecutionException readError) {
+                System.err.println(String.format("Error reading map: %s", readError.getCause()));
+                statusLabel.setText("Open failed");
+            }
+        }
+    }
+
+    private void drawTown(Graphics2D g2d, Town town, BasicStroke stroke) {
+        g2d.setStroke(stroke); // makes circles thicker 
 
         // apply an offset to align by center rather than top-left
-        int drawX = (int) town.getOrigin().getX() - CIRCLE_RADIUS / 2;
-        int drawY = (int) town.getOrigin().getY() - CIRCLE_RADIUS / 2;
+        int size = (int) Math.round(CIRCLE_RADIUS * scale);
+        int drawX = toPanelX(town.getOrigin().getX()) - size / 2;
+        int drawY = toPanelY(town.getOrigin().getY()) - size / 2;
 
         // Fill background
-        if (town.hasFireStation()) {
+        if (currentMap.hasStation(town)) {
             g2d.setColor(FIRE_STATION_COLOR);
-            g2d.fillOval(drawX, drawY, CIRCLE_RADIUS, CIRCLE_RADIUS);
+            g2d.fillOval(drawX, drawY, size, size);
         } else {
             g2d.setColor(this.getBackground());
-            g2d.fillOval(drawX, drawY, CIRCLE_RADIUS, CIRCLE_RADIUS);
+            g2d.fillOval(drawX, drawY, size, size);
         }
 
         // Draw border
         g2d.setColor(Color.BLACK);
-        g2d.drawOval(drawX, drawY, CIRCLE_RADIUS, CIRCLE_RADIUS);
+        g2d.drawOval(drawX, drawY, size, size);
+
+        // Draw the name string centered in the circle, once the circle is big enough to read it
+        if (size >= CIRCLE_RADIUS / 2) {
+            FontMetrics fm = g2d.getFontMetrics();
+            int stringWidth = fm.stringWidth(town.getName()) / 2;
+            int stringHeight = fm.getMaxDescent() / 2;
+            g2d.drawString(
+                    town.getName(),
+                    drawX + size / 2 - stringWidth,
+                    drawY + size / 2 + stringHeight);
+        }
+    }
+
+    /**
+     * Draws all the towns of a cell as one circle at their mean position, sized by how many
+     * there are and shaded by the share of them with a fire station, labelled stations/towns.
+     */
+    private void drawCluster(Graphics2D g2d, TownClusterGrid.Cluster cluster, int maxRadius) {
+        int radius = (int) Math.min(maxRadius, 4 + 2 * Math.sqrt(cluster.getTownCount()));
+        int centreX = toPanelX(cluster.getCentreX());
+        int centreY = toPanelY(cluster.getCentreY());
+
+        g2d.setStroke(CLUSTER_STROKE);
+        if (cluster.getStationCount() > 0) {
+            int alpha = 64 + 191 * cluster.getStationCount() / cluster.getTownCount();
+            g2d.setColor(new Color(FIRE_STATION_COLOR.getRed(), FIRE_STATION_COLOR.getGreen(), FIRE_STATION_COLOR.getBlue(), alpha));
+        } else {
+            g2d.setColor(this.getBackground());
+        }
+        g2d.fillOval(centreX - radius, centreY - radius, 2 * radius, 2 * radius);
+        g2d.setColor(Color.BLACK);
+        g2d.drawOval(centreX - radius, centreY - radius, 2 * radius, 2 * radius);
 
-        // Draw the name string centered in the circle
+        String label = cluster.getStationCount() + "/" + cluster.getTownCount();
         FontMetrics fm = g2d.getFontMetrics();
-        int stringWidth = fm.stringWidth(town.getName()) / 2;
-        int stringHeight = fm.getMaxDescent() / 2;
-        g2d.drawString(
-                town.getName(),
-                drawX + CIRCLE_RADIUS / 2 - stringWidth,
-                drawY + CIRCLE_RADIUS / 2 + stringHeight);
+        int stringWidth = fm.stringWidth(label);
+        if (stringWidth <= 2 * radius) {
+            g2d.drawString(label, centreX - stringWidth / 2, centreY + fm.getMaxDescent() / 2);
+        }
     }
 
     @Override
@@ -189,53 +613,195 @@ public class VisualizerPanel extends JPanel implements MouseListener, MouseMotio
             g2d.drawString("Town Selected: " + edgeOriginTown.getName(), 10, 20);
         }
 
-        // Render edges
-        for (Map.Entry<Town, Set<Town>> entry : mainMap.entrySet()) {
-            Town currentTown = entry.getKey();
-            Set<Town> neighbours = entry.getValue();
-
-            for (Town neighbour : neighbours) {
-                g2d.drawLine((int) currentTown.getOrigin().getX(), (int) currentTown.getOrigin().getY(),
-                        (int) neighbour.getOrigin().getX(), (int) neighbour.getOrigin().getY());
-            }
-        }
-
-        // Draw a hint line from a selected town to cursor position
+        // Draw a hint line from a selected town to cursor position, under the towns
         if (edgeMode) {
-            int startX = (int) edgeOriginTown.getOrigin().getX();
-            int startY = (int) edgeOriginTown.getOrigin().getY();
+            int startX = toPanelX(edgeOriginTown.getOrigin().getX());
+            int startY = toPanelY(edgeOriginTown.getOrigin().getY());
             int endX = (int) cursorPoint.getX();
             int endY = (int) cursorPoint.getY();
             g2d.drawLine(startX, startY, endX, endY);
         }
 
-        // Render towns
-        for (Town town : mainMap.keySet()) {
-            drawTown(g2d, town);
+        // Edges, towns and labels come from the cached layer, which is only redrawn after the map changes
+        if (sceneLayer == null || sceneLayer.getWidth() != getWidth() || sceneLayer.getHeight() != getHeight()) {
+            sceneLayer = null;
+            if (getWidth() > 0 && getHeight() > 0) {
+                sceneLayer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+                renderScene();
+            }
+        } else if (sceneDirty) {
+            renderScene();
+        }
+        if (sceneLayer != null) {
+            g2d.drawImage(sceneLayer, 0, 0, null);
         }
 
         /* FINISH RENDERING */
     }
 
+    /**
+     * Redraws the part of the map in view into the transparent scene layer. Zoomed out, each
+     * cell of the cluster level that fits CLUSTER_PIXELS is one circle, so the work depends on
+     * the size of the panel rather than the number of towns. Zoomed in, crowded cells are drawn
+     * as clusters too, but the roads in view are all visited, about 200 ms for 1.2 million.
+     */
+    private void renderScene() {
+        Graphics2D g2d = sceneLayer.createGraphics();
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, sceneLayer.getWidth(), sceneLayer.getHeight());
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(getFont());
+        g2d.setColor(Color.BLACK);
+
+        // only edges and towns that can show up on the panel are drawn
+        Point topLeft = toMap(new Point(0, 0));
+        Point bottomRight = toMap(new Point(sceneLayer.getWidth(), sceneLayer.getHeight()));
+        Rectangle bounds = new Rectangle(topLeft);
+        bounds.add(bottomRight);
+
+        // towns just outside whose circles reach in are drawn too
+        Rectangle townArea = new Rectangle(bounds);
+        townArea.grow(CIRCLE_RADIUS, CIRCLE_RADIUS);
+        if (scale < TOWN_MIN_SCALE) {
+            int level = 0;
+            while (level < clusters.getLevelCount() - 1 && clusters.getCellSize(level) * scale < CLUSTER_PIXELS) {
+                level++;
+            }
+            int maxRadius = (int) Math.max(4, clusters.getCellSize(level) * scale / 2);
+            clusters.forEachCluster(level, townArea, cluster -> drawCluster(g2d, cluster, maxRadius));
+        } else {
+            // cells too crowded to tell their towns apart are drawn as clusters, and are looked up
+            // by their place in the view
+            long cellSize = clusters.getCellSize(0);
+            long firstCellX = Math.floorDiv((long) townArea.x, cellSize);
+            long firstCellY = Math.floorDiv((long) townArea.y, cellSize);
+            int viewCellsX = (int) (Math.floorDiv((long) townArea.x + townArea.width, cellSize) - firstCellX + 1);
+            int viewCellsY = (int) (Math.floorDiv((long) townArea.y + townArea.height, cellSize) - firstCellY + 1);
+            TownClusterGrid.Cluster[] denseCells = new TownClusterGrid.Cluster[viewCellsX * viewCellsY];
+            List<TownClusterGrid.Cluster> sparseCells = new ArrayList<>();
+            boolean[] anyDense = new boolean[1];
+            clusters.forEachCluster(0, townArea, cell -> {
+                if (cell.getTownCount() > DENSE_CELL_TOWNS) {
+                    denseCells[(int) ((cell.getCellY() - firstCellY) * viewCellsX + cell.getCellX() - firstCellX)] = cell;
+                    anyDense[0] = true;
+                } else {
+                    sparseCells.add(cell);
+                }
+            });
+
+            // Render edges. A road between two clusters is drawn as one line between their
+            // centres and a road inside one is hidden by it, so crowded cells cost a few lines
+            // each; every road in view is still visited to find which cells its ends are in
+            Map<TownClusterGrid.Cluster, Set<TownClusterGrid.Cluster>> joined = new HashMap<>();
+            for (TownSpatialIndex.Road road : townIndex.roadsIn(bounds)) {
+                Point from = road.getFrom().getOrigin();
+                Point to = road.getTo().getOrigin();
+                if (anyDense[0]) {
+                    TownClusterGrid.Cluster fromCell = viewCell(denseCells, from, firstCellX, firstCellY, viewCellsX, viewCellsY);
+                    TownClusterGrid.Cluster toCell = viewCell(denseCells, to, firstCellX, firstCellY, viewCellsX, viewCellsY);
+                    if (fromCell != null && toCell != null) {
+                        if (fromCell != toCell && joined.computeIfAbsent(fromCell, cell -> new HashSet<>()).add(toCell)) {
+                            joined.computeIfAbsent(toCell, cell -> new HashSet<>()).add(fromCell);
+                            g2d.drawLine(toPanelX(fromCell.getCentreX()), toPanelY(fromCell.getCentreY()),
+                                    toPanelX(toCell.getCentreX()), toPanelY(toCell.getCentreY()));
+                        }
+                        continue;
+                    }
+                }
+                g2d.drawLine(toPanelX(from.x), toPanelY(from.y), toPanelX(to.x), toPanelY(to.y));
+            }
+
+            // Render towns
+            BasicStroke stroke = scale == 1 ? TOWN_STROKE : new BasicStroke((float) Math.max(1, 4 * Math.min(1, scale)));
+            int maxRadius = (int) Math.max(4, clusters.getCellSize(0) * scale / 2);
+            for (TownClusterGrid.Cluster cell : denseCells) {
+                if (cell != null) {
+                    drawCluster(g2d, cell, maxRadius);
+                }
+            }
+            for (TownClusterGrid.Cluster cell : sparseCells) {
+                for (Town town : cell.getTowns()) {
+                    if (townArea.contains(town.getOrigin())) {
+                        drawTown(g2d, town, stroke);
+                    }
+                }
+            }
+        }
+
+        g2d.dispose();
+        sceneDirty = false;
+    }
+
+    /**
+     * @return the dense cell in view holding a point, or null if it is in no such cell
+     */
+    private TownClusterGrid.Cluster viewCell(TownClusterGrid.Cluster[] denseCells, Point point, long firstCellX,
+            long firstCellY, int viewCellsX, int viewCellsY) {
+        long cellSize = clusters.getCellSize(0);
+        long cellX = Math.floorDiv((long) point.x, cellSize) - firstCellX;
+        long cellY = Math.floorDiv((long) point.y, cellSize) - firstCellY;
+        if (cellX < 0 || cellX >= viewCellsX || cellY < 0 || cellY >= viewCellsY) {
+            return null;
+        }
+        return denseCells[(int) (cellY * viewCellsX + cellX)];
+    }
+
+    /**
+     * Marks the cached scene layer as out of date after the map or the view changes.
+     */
+    private void invalidateScene() {
+        sceneDirty = true;
+        repaint();
+    }
+
     @Override
     public void mouseMoved(MouseEvent e) {
+        Point previousCursor = cursorPoint;
         cursorPoint = e.getPoint();
-        repaint();
+        if (edgeMode) {
+            // only the area swept by the hint line needs repainting
+            Point origin = new Point(toPanelX(edgeOriginTown.getOrigin().x), toPanelY(edgeOriginTown.getOrigin().y));
+            Rectangle dirty = new Rectangle(origin);
+            dirty.add(previousCursor);
+            dirty.add(cursorPoint);
+            dirty.grow(2, 2);
+            repaint(dirty);
+        }
     }
 
     @Override
     public void mousePressed(MouseEvent e) {
-        Point clickLocation = new Point(e.getX(), e.getY());
+        if (!SwingUtilities.isLeftMouseButton(e)) {
+            // any other button pans the view
+            panStart = e.getPoint();
+            panStartOffsetX = offsetX;
+            panStartOffsetY = offsetY;
+            return;
+        }
+        if (isOpening()) {
+            return; // the map is about to be replaced
+        }
+        if (scale < TOWN_MIN_SCALE) {
+            // towns are only drawn as clusters, so a click zooms in on the one under it
+            zoomAt(e.getPoint(), 2);
+            return;
+        }
+        Point clickLocation = toMap(e.getPoint());
         Town townUnderCursor = getTownUnderCursor(clickLocation);
         if (townUnderCursor == null) {
             if (edgeMode) {
                 // when we are clicking a blank space in edge mode, do nothing
                 resetEdgeMode();
             } else {
-                if (isInBounds(clickLocation)) {
-                    String id = String.valueOf(mainMap.size() + 1);
-                    Town town = new Town(id, clickLocation);
-                    mainMap.put(town, new HashSet<>());
+                if (isInBounds(e.getPoint())) {
+                    // number new towns after the ones already placed, skipping names a loaded map used
+                    // (undone towns keep their names in the registry, so those are skipped too)
+                    int number = currentMap.getTownCount() + 1;
+                    while (registry.find(String.valueOf(number)) != null) {
+                        number++;
+                    }
+                    commit(currentMap.withTown(registry.intern(String.valueOf(number), clickLocation)));
                 }
             }
         } else {
@@ -255,13 +821,14 @@ public class VisualizerPanel extends JPanel implements MouseListener, MouseMotio
     }
 
     private boolean isInBounds (Point clickLocation) {
-        int drawX = (int) clickLocation.getX() - CIRCLE_RADIUS / 2;
-        int drawY = (int) clickLocation.getY() - CIRCLE_RADIUS / 2;
+        int size = (int) Math.round(CIRCLE_RADIUS * scale);
+        int drawX = (int) clickLocation.getX() - size / 2;
+        int drawY = (int) clickLocation.getY() - size / 2;
 
-        // check if x and y drawing positions will cause circle to be cut off by the frame 
-        if (drawX < 0 || (drawX + CIRCLE_RADIUS) > PANEL_WIDTH) {
+        // check if x and y drawing positions will cause circle to be cut off by the panel 
+        if (drawX < 0 || (drawX + size) > getWidth()) {
             return false;   
-        } else if (drawY < 0 || (drawY + CIRCLE_RADIUS) > (PANEL_HEIGHT-30)) { // subtract 30 because screen height includes the frame header 
+        } else if (drawY < 0 || (drawY + size) > getHeight()) {
             return false;  
         } 
 
@@ -276,44 +843,20 @@ public class VisualizerPanel extends JPanel implements MouseListener, MouseMotio
     }
 
     private void connectTowns(Town town1, Town town2) {
-        if (town1.equals(town2)) {
-            return;
-        }
-
-        if (mainMap.containsKey(town1)) {
-            mainMap.get(town1).add(town2);
-        } else {
-            Set<Town> newSet = new HashSet<>();
-            newSet.add(town2);
-            mainMap.put(town1, newSet);
-        }
-
-        if (mainMap.containsKey(town2)) {
-            mainMap.get(town2).add(town1);
-        } else {
-            Set<Town> newSet = new HashSet<>();
-            newSet.add(town1);
-            mainMap.put(town2, newSet);
+        if (town1.equals(town2) || currentMap.isConnected(town1, town2)) {
+            return; // already connected
         }
+        commit(currentMap.withRoad(town1, town2));
     }
 
     public Town getTownUnderCursor(Point cursorLocation) {
-        for (Town curTown : mainMap.keySet()) {
-            // use equation of circle to check if a click was inside a town
-            double distanceX = Math.pow(cursorLocation.getX() - curTown.getOrigin().getX(), 2);
-            double distanceY = Math.pow(cursorLocation.getY() - curTown.getOrigin().getY(), 2);
-            if (distanceX + distanceY <= Math.pow(CIRCLE_RADIUS, 2)) {
-                // then our point is inside this town's radius
-                return curTown;
-            }
-        }
-        return null;
+        // a click within one radius of a town's centre counts as a click on it
+        return townIndex.findTown(cursorLocation, CIRCLE_RADIUS);
     }
 
     @Override
     public void mouseReleased(MouseEvent e) {
-        return;
-
+        panStart = null;
     }
 
     @Override
@@ -335,6 +878,15 @@ public class VisualizerPanel extends JPanel implements MouseListener, MouseMotio
 
     @Override
     public void mouseDragged(MouseEvent e) {
-        return;
+        if (panStart != null) {
+            offsetX = panStartOffsetX + e.getX() - panStart.x;
+            offsetY = panStartOffsetY + e.getY() - panStart.y;
+            invalidateScene();
+        }
+    }
+
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        zoomAt(e.getPoint(), Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+/*
+ * [PlannerBenchmark.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Times the solvers, map readers and writer, and visualizer hit-testing on synthetic maps;
+ * the Benchmarks section of the README describes its options and how it measures.
+ */
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class PlannerBenchmark {
+    private static final String[] ALL_BENCHMARKS = {"solve", "solveParallel", "solveQueue", "solveBitset", "read", "readSnapshot", "write", "hitTest"};
+    private static final long MIN_ITERATION_NANOS = 20_000_000L;
+    private static final int HIT_TEST_POINTS = 1024;
+
+    // results are folded in here so the JIT cannot drop the work being timed
+    private static volatile long sink;
+
+    private int[] sizes = {100, 1_000, 10_000, 100_000, 1_000_000};
+    private SyntheticMaps.Kind[] kinds = SyntheticMaps.Kind.values();
+    private double[] degrees = {0};
+    private String[] benchmarks = ALL_BENCHMARKS;
+    private int warmupIterations = 3;
+    private int measuredIterations = 5;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 42;
+    private File jsonFile;
+    private ForkJoinPool pool;
+
+    private final List<String> jsonResults = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        PlannerBenchmark benchmark = new PlannerBenchmark();
+        benchmark.parseArguments(args);
+        benchmark.pool = new ForkJoinPool(benchmark.threads);
+        try {
+            benchmark.runAll();
+        } finally {
+            benchmark.pool.shutdown();
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-sizes":
+                    sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "-maps":
+                    kinds = Arrays.stream(value.split(",")).map(SyntheticMaps.Kind::valueOf)
+                            .toArray(SyntheticMaps.Kind[]::new);
+                    break;
+                case "-degrees":
+                    degrees = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray();
+                    break;
+                case "-benchmarks":
+                    benchmarks = value.split(",");
+                    break;
+                case "-warmup":
+                    warmupIterations = Integer.parseInt(value);
+                    break;
+                case "-iterations":
+                    measuredIterations = Integer.parseInt(value);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "-json":
+                    jsonFile = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void runAll() throws IOException {
+        System.out.println(String.format("%-13s %-11s %9s %10s %14s %12s", "benchmark", "map", "towns", "edges",
+                "ms/op", "+-"));
+        for (SyntheticMaps.Kind kind : kinds) {
+            for (int size : sizes) {
+                for (double degree : degrees) {
+                    runAll(kind, SyntheticMaps.generate(kind, size, degree, seed));
+                }
+            }
+        }
+        if (jsonFile != null) {
+            writeJson();
+        }
+    }
+
+    private void runAll(SyntheticMaps.Kind kind, TownGraph graph) throws IOException {
+        File textFile = File.createTempFile("bench", ".txt");
+        File snapshotFile = File.createTempFile("bench", ".tmap");
+        try {
+            TownMapSerializer.writeGraphToFile(graph, textFile);
+            TownMapSerializer.writeGraphToSnapshot(graph, snapshotFile);
+            for (String name : benchmarks) {
+                run(name, kind, graph, operation(name, graph, textFile, snapshotFile));
+            }
+        } finally {
+            Files.deleteIfExists(textFile.toPath());
+            Files.deleteIfExists(snapshotFile.toPath());
+        }
+    }
+
+    /**
+     * A single timed operation. Returns any value derived from its work.
+     */
+    private interface Operation {
+        long run() throws IOException;
+    }
+
+    private Operation operation(String name, TownGraph graph, File textFile, File snapshotFile) {
+        switch (name) {
+            case "solve":
+                return () -> new FireStationSolver(graph).solveIndices().length;
+            case "solveParallel":
+                return () -> new ParallelFireStationSolver(graph, pool).solveIndices().length;
+            case "solveQueue":
+                return () -> solveWith(FireStationSolver.Kernel.QUEUE, graph);
+            case "solveBitset":
+                return () -> solveWith(FireStationSolver.Kernel.BITSET, graph);
+            case "read":
+                return () -> TownMapSerializer.readGraphFromFile(textFile).getEdgeCount();
+            case "readSnapshot":
+                return () -> TownMapSerializer.readGraphFromSnapshot(snapshotFile).getEdgeCount();
+            case "write":
+                return () -> {
+                    TownMapSerializer.writeGraphToFile(graph, textFile);
+                    return textFile.length();
+                };
+            case "hitTest":
+                return hitTest(graph);
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + name);
+        }
+    }
+
+    private static long solveWith(FireStationSolver.Kernel kernel, TownGraph graph) {
+        FireStationSolver solver = new FireStationSolver(graph);
+        solver.setKernel(kernel);
+        return solver.solveIndices().length;
+    }
+
+    /**
+     * Presses at random points, half of them on top of a town, and counts the hits.
+     */
+    private Operation hitTest(TownGraph graph) {
+        VisualizerPanel panel = new VisualizerPanel(1920, 1080);
+        panel.setMap(graph.toMap());
+        Random random = new Random(seed);
+        Point[] points = new Point[HIT_TEST_POINTS];
+        int maxX = 1;
+        int maxY = 1;
+        for (int i = 0; i < graph.getTownCount(); i++) {
+            maxX = Math.max(maxX, graph.getX(i));
+            maxY = Math.max(maxY, graph.getY(i));
+        }
+        for (int i = 0; i < points.length; i++) {
+            if (i % 2 == 0 && graph.getTownCount() > 0) {
+                int town = random.nextInt(graph.getTownCount());
+                points[i] = new Point(graph.getX(town) + random.nextInt(11) - 5, graph.getY(town) + random.nextInt(11) - 5);
+            } else {
+                points[i] = new Point(random.nextInt(maxX), random.nextInt(maxY));
+            }
+        }
+        int[] next = {0};
+        return () -> {
+            Point point = points[next[0]++ & (HIT_TEST_POINTS - 1)];
+            return panel.getTownUnderCursor(point) == null ? 0 : 1;
+        };
+    }
+
+    private void run(String name, SyntheticMaps.Kind kind, TownGraph graph, Operation operation) throws IOException {
+        // size a batch so one iteration is long enough to time reliably
+        long batch = 1;
+        while (true) {
+            long start = System.nanoTime();
+            for (long i = 0; i < batch; i++) {
+                sink += operation.run();
+            }
+            if (System.nanoTime() - start >= MIN_ITERATION_NANOS || batch >= 1L << 30) {
+                break;
+            }
+            batch *= 2;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            for (long j = 0; j < batch; j++) {
+                sink += operation.run();
+            }
+        }
+
+        double[] millisPerOp = new double[measuredIterations];
+        for (int i = 0; i < measuredIterations; i++) {
+            long start = System.nanoTime();
+            for (long j = 0; j < batch; j++) {
+                sink += operation.run();
+            }
+            millisPerOp[i] = (System.nanoTime() - start) / 1e6 / batch;
+        }
+
+        double mean = Arrays.stream(millisPerOp).average().orElse(0);
+        double variance = Arrays.stream(millisPerOp).map(v -> (v - mean) * (v - mean)).sum()
+                / Math.max(1, millisPerOp.length - 1);
+        double stdev = Math.sqrt(variance);
+        double min = Arrays.stream(millisPerOp).min().orElse(0);
+        double max = Arrays.stream(millisPerOp).max().orElse(0);
+
+        System.out.println(String.format("%-13s %-11s %9d %10d %14.6f %12.6f", name, kind, graph.getTownCount(),
+                graph.getEdgeCount(), mean, stdev));
+        double averageDegree = graph.getTownCount() == 0 ? 0 : 2.0 * graph.getEdgeCount() / graph.getTownCount();
+        jsonResults.add(String.format(
+                "{\"benchmark\": \"%s\", \"map\": \"%s\", \"towns\": %d, \"edges\": %d, \"averageDegree\": %s, "
+                        + "\"seed\": %d, \"threads\": %d, \"iterations\": %d, \"opsPerIteration\": %d, "
+                        + "\"meanMillisPerOp\": %s, \"stdevMillisPerOp\": %s, \"minMillisPerOp\": %s, "
+                        + "\"maxMillisPerOp\": %s}",
+                name, kind, graph.getTownCount(), graph.getEdgeCount(), averageDegree, seed, threads,
+                measuredIterations, batch,
+                mean, stdev, min, max));
+    }
+
+    private void writeJson() throws IOException {
+        try (PrintWriter writer = new PrintWriter(jsonFile, "UTF-8")) {
+            writer.println("{");
+            writer.println(String.format("  \"javaVersion\": \"%s\",", System.getProperty("java.version")));
+            writer.println(String.format("  \"processors\": %d,", Runtime.getRuntime().availableProcessors()));
+            writer.println(String.format("  \"maxHeapBytes\": %d,", Runtime.getRuntime().maxMemory()));
+            writer.println(String.format("  \"timestampMillis\": %d,", System.currentTimeMillis()));
+            writer.println("  \"results\": [");
+            for (int i = 0; i < jsonResults.size(); i++) {
+                writer.println("    " + jsonResults.get(i) + (i + 1 < jsonResults.size() ? "," : ""));
+            }
+            writer.println("  ]");
+            writer.println("}");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * [SyntheticMaps.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Seeded generators for benchmark maps; the same kind, size and seed always give the same map.
+ */
+
+import java.util.Random;
+
+public class SyntheticMaps {
+    private static final int SPACING = 60;
+
+    /**
+     * The map shapes the benchmarks run on.
+     */
+    public enum Kind {
+        GRID, GEOMETRIC, SCALE_FREE, COMPONENTS
+    }
+
+    public static TownGraph generate(Kind kind, int towns, long seed) {
+        return generate(kind, towns, 0, seed);
+    }
+
+    /**
+     * @param averageDegree the average number of roads per town for GEOMETRIC and SCALE_FREE maps,
+     *        or 0 for their usual 6 and 4; the other kinds ignore it
+     */
+    public static TownGraph generate(Kind kind, int towns, double averageDegree, long seed) {
+        switch (kind) {
+            case GRID:
+                return grid(towns);
+            case GEOMETRIC:
+                return geometric(towns, averageDegree > 0 ? averageDegree : 6.0, seed);
+            case SCALE_FREE:
+                return scaleFree(towns, averageDegree > 0 ? Math.max(1, (int) Math.round(averageDegree / 2)) : 2, seed);
+            case COMPONENTS:
+                return components(towns, 50, seed);
+            default:
+                throw new IllegalArgumentException("Unknown map kind " + kind);
+        }
+    }
+
+    /**
+     * A square street grid, with each town joined to the towns beside it.
+     */
+    public static TownGraph grid(int towns) {
+        int side = (int) Math.ceil(Math.sqrt(towns));
+        TownGraph.Builder builder = new TownGraph.Builder(towns);
+        for (int i = 0; i < towns; i++) {
+            builder.addTown(String.valueOf(i + 1), (i % side) * SPACING, (i / side) * SPACING);
+        }
+        for (int i = 0; i < towns; i++) {
+            if (i % side + 1 < side && i + 1 < towns) {
+                builder.addEdge(i, i + 1);
+            }
+            if (i + side < towns) {
+                builder.addEdge(i, i + side);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Towns dropped uniformly at random, joined whenever they are closer than the radius
+     * that gives the requested average degree.
+     */
+    public static TownGraph geometric(int towns, double averageDegree, long seed) {
+        Random random = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(towns)) * SPACING;
+        double radius = Math.sqrt(averageDegree * side * (double) side / (Math.PI * Math.max(towns, 1)));
+        int[] x = new int[towns];
+        int[] y = new int[towns];
+        TownGraph.Builder builder = new TownGraph.Builder(towns);
+        for (int i = 0; i < towns; i++) {
+            x[i] = random.nextInt(side);
+            y[i] = random.nextInt(side);
+            builder.addTown(String.valueOf(i + 1), x[i], y[i]);
+        }
+
+        // bucket the towns into cells one radius wide so only neighbouring cells are compared
+        int cells = Math.max(1, (int) (side / Math.max(radius, 1)));
+        double cellSize = side / (double) cells;
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[towns];
+        for (int i = 0; i < towns; i++) {
+            int cx = Math.min(cells - 1, (int) (x[i] / cellSize));
+            int cy = Math.min(cells - 1, (int) (y[i] / cellSize));
+            cellOf[i] = cy * cells + cx;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = cellStart.clone();
+        int[] members = new int[towns];
+        for (int i = 0; i < towns; i++) {
+            members[fill[cellOf[i]]++] = i;
+        }
+
+        double radiusSquared = radius * radius;
+        for (int i = 0; i < towns; i++) {
+            int cx = cellOf[i] % cells;
+            int cy = cellOf[i] / cells;
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(cells - 1, cy + 1); ny++) {
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(cells - 1, cx + 1); nx++) {
+                    int cell = ny * cells + nx;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int j = members[k];
+                        double dx = x[i] - x[j];
+                        double dy = y[i] - y[j];
+                        if (j > i && dx * dx + dy * dy <= radiusSquared) {
+                            builder.addEdge(i, j);
+                        }
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Preferential attachment: each new town joins the given number of existing towns,
+     * picked with probability proportional to their degree, giving a few large hubs.
+     */
+    public static TownGraph scaleFree(int towns, int edgesPerTown, long seed) {
+        Random random = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(towns)) * SPACING;
+        TownGraph.Builder builder = new TownGraph.Builder(towns);
+        // every edge end is recorded once, so a uniform pick from here is degree-proportional
+        int[] ends = new int[Math.max(2, 2 * towns * edgesPerTown)];
+        int endCount = 0;
+        for (int i = 0; i < towns; i++) {
+            builder.addTown(String.valueOf(i + 1), random.nextInt(side), random.nextInt(side));
+            if (i == 0) {
+                continue;
+            }
+            for (int e = 0; e < Math.min(edgesPerTown, i); e++) {
+                int target = endCount == 0 ? 0 : ends[random.nextInt(endCount)];
+                builder.addEdge(i, target);
+                ends[endCount++] = i;
+                ends[endCount++] = target;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Many separate islands of the given size, each a small random geometric map in its own
+     * patch of the square.
+     */
+    public static TownGraph components(int towns, int componentSize, long seed) {
+        Random random = new Random(seed);
+        int componentCount = (towns + componentSize - 1) / componentSize;
+        int patchesPerRow = (int) Math.ceil(Math.sqrt(componentCount));
+        int patch = (int) Math.ceil(Math.sqrt(componentSize)) * SPACING;
+        TownGraph.Builder builder = new TownGraph.Builder(towns);
+        for (int start = 0; start < towns; start += componentSize) {
+            int size = Math.min(componentSize, towns - start);
+            int component = start / componentSize;
+            int originX = (component % patchesPerRow) * patch * 2;
+            int originY = (component / patchesPerRow) * patch * 2;
+            for (int i = 0; i < size; i++) {
+                builder.addTown(String.valueOf(start + i + 1), originX + random.nextInt(patch),
+                        originY + random.nextInt(patch));
+            }
+            // a random spanning tree keeps the island connected, plus a few extra roads
+            for (int i = 1; i < size; i++) {
+                builder.addEdge(start + i, start + random.nextInt(i));
+            }
+            for (int e = 0; e < size / 2; e++) {
+                builder.addEdge(start + random.nextInt(size), start + random.nextInt(size));
+            }
+        }
+        return builder.build();
+    }
+}
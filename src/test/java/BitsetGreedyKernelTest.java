@@ -0,0 +1,35 @@
+/*
+ * [BitsetGreedyKernelTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that the bitset kernel places the queue kernel's stations, in its order and with its scores.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class BitsetGreedyKernelTest {
+    @Test
+    public void matchesQueueKernel() {
+        Random random = new Random(15);
+        for (int map = 0; map < 200; map++) {
+            // up to a few hundred towns, so rows span several words, from sparse to dense
+            TownGraph graph = RandomMaps.random(random, random.nextInt(400), random.nextDouble() * random.nextDouble() * 0.2);
+            int[] queueScores = new int[graph.getTownCount()];
+            int[] bitsetScores = new int[graph.getTownCount()];
+            int[] queue = solve(graph, FireStationSolver.Kernel.QUEUE, queueScores);
+            int[] bitset = solve(graph, FireStationSolver.Kernel.BITSET, bitsetScores);
+            assertArrayEquals(queue, bitset, "map " + map);
+            assertArrayEquals(queueScores, bitsetScores, "map " + map);
+            assertArrayEquals(queue, solve(graph, FireStationSolver.Kernel.AUTO, null), "map " + map);
+        }
+    }
+
+    private static int[] solve(TownGraph graph, FireStationSolver.Kernel kernel, int[] placementScores) {
+        FireStationSolver solver = new FireStationSolver(graph);
+        solver.setKernel(kernel);
+        return solver.solveIndices(placementScores);
+    }
+}
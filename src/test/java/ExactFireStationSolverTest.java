@@ -0,0 +1,41 @@
+/*
+ * [ExactFireStationSolverTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks the exact solver against trying every subset of towns on small random maps.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class ExactFireStationSolverTest {
+    @Test
+    public void matchesBruteForceOnSmallMaps() {
+        Random random = new Random(3);
+        for (int map = 0; map < 150; map++) {
+            int towns = 1 + random.nextInt(20);
+            TownGraph graph = RandomMaps.random(random, towns, 0.05 + random.nextDouble() * 0.3);
+            ExactFireStationSolver.Result result = new ExactFireStationSolver(graph).solve(Long.MAX_VALUE);
+            String label = "map " + map + " with " + towns + " towns";
+            assertTrue(result.isOptimal(), label);
+            assertTrue(RandomMaps.covers(graph, result.getStations()), label);
+            assertEquals(RandomMaps.minimumStations(graph), result.getStations().length, label);
+        }
+    }
+
+    @Test
+    public void keepsAValidAnswerAndBoundWhenOutOfTime() {
+        Random random = new Random(5);
+        for (int map = 0; map < 40; map++) {
+            TownGraph graph = RandomMaps.random(random, 18, 0.15);
+            ExactFireStationSolver.Result result = new ExactFireStationSolver(graph).solve(0);
+            int minimum = RandomMaps.minimumStations(graph);
+            assertTrue(RandomMaps.covers(graph, result.getStations()));
+            assertTrue(result.getLowerBound() <= minimum);
+            assertTrue(result.getStations().length >= minimum);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * [FireStationLowerBoundTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks each certificate without trusting the bound's arithmetic, and the bounds against brute force.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class FireStationLowerBoundTest {
+    @Test
+    public void boundsNeverExceedTheOptimum() {
+        Random random = new Random(24);
+        for (int map = 0; map < 150; map++) {
+            TownGraph graph = RandomMaps.random(random, 1 + random.nextInt(18), random.nextDouble() * 0.4);
+            FireStationLowerBound.Result result = new FireStationLowerBound(graph).certify(Long.MAX_VALUE);
+            String label = "map " + map;
+            assertFeasible(graph, result, label);
+            int minimum = RandomMaps.minimumStations(graph);
+            assertTrue(result.getLowerBound() <= minimum, label);
+            assertTrue(result.getPackingBound() <= minimum, label);
+            assertTrue(result.getStations().length >= minimum, label);
+            assertEquals(result.getStations().length - result.getLowerBound(), result.getGap(), label);
+        }
+    }
+
+    @Test
+    public void boundDoesNotDependOnThreads() {
+        // several chunks of towns, so the passes are split across the pool
+        TownGraph graph = ring(new Random(25), 50_000);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            FireStationLowerBound.Result single = new FireStationLowerBound(graph, one).certify(Long.MAX_VALUE);
+            FireStationLowerBound.Result parallel = new FireStationLowerBound(graph, four).certify(Long.MAX_VALUE);
+            assertFeasible(graph, single, "one thread");
+            assertEquals(single.getFractionalBound(), parallel.getFractionalBound());
+            assertEquals(single.getRounds(), parallel.getRounds());
+            assertTrue(single.getLowerBound() <= single.getStations().length);
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    /**
+     * Checks that no weight is negative, no closed neighbourhood weighs more than one and the
+     * weights add up to at least the fractional bound.
+     */
+    private static void assertFeasible(TownGraph graph, FireStationLowerBound.Result result, String label) {
+        double[] certificate = result.getCertificate();
+        assertEquals(graph.getTownCount(), certificate.length, label);
+        double total = 0;
+        for (int town = 0; town < certificate.length; town++) {
+            assertTrue(certificate[town] >= 0, label + " town " + town);
+            double neighbourhood = certificate[town];
+            for (int i = graph.offsets()[town]; i < graph.offsets()[town + 1]; i++) {
+                neighbourhood += certificate[graph.neighbours()[i]];
+            }
+            assertTrue(neighbourhood <= 1, label + " town " + town + " weighs " + neighbourhood);
+            total += certificate[town];
+        }
+        assertTrue(total >= result.getFractionalBound() * (1 - 1e-9), label);
+    }
+
+    /**
+     * @return a ring of towns with a random chord from every tenth one
+     */
+    private static TownGraph ring(Random random, int towns) {
+        TownGraph.Builder builder = new TownGraph.Builder(towns);
+        for (int i = 0; i < towns; i++) {
+            builder.addTown("t" + i, random.nextInt(100_000), random.nextInt(100_000));
+        }
+        for (int i = 0; i < towns; i++) {
+            builder.addEdge(i, (i + 1) % towns);
+            if (i % 10 == 0) {
+                int other = random.nextInt(towns);
+                if (other != i) {
+                    builder.addEdge(i, other);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
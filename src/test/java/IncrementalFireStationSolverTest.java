@@ -0,0 +1,114 @@
+/*
+ * [IncrementalFireStationSolverTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Applies random changes to a map and checks the repaired stations against a full solve after each.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class IncrementalFireStationSolverTest {
+    @Test
+    public void startsWithTheFullSolve() {
+        Random random = new Random(8);
+        for (int map = 0; map < 20; map++) {
+            Map<Town, Set<Town>> towns = RandomMaps.random(random, 1 + random.nextInt(60), 0.05).toMap();
+            IncrementalFireStationSolver solver = new IncrementalFireStationSolver(towns);
+            assertEquals(new FireStationSolver(towns).solve(), solver.getStations());
+            assertTrue(solver.matchesFullSolve());
+        }
+    }
+
+    @Test
+    public void repairsMatchWhatTheyReport() {
+        Random random = new Random(9);
+        for (int map = 0; map < 10; map++) {
+            Map<Town, Set<Town>> towns = RandomMaps.random(random, 40, 0.05).toMap();
+            IncrementalFireStationSolver solver = new IncrementalFireStationSolver(towns);
+            List<Town> names = new ArrayList<>(towns.keySet());
+            for (int change = 0; change < 200; change++) {
+                applyRandomChange(random, solver, towns, names, change);
+                String label = "map " + map + " change " + change;
+                assertEquals(towns, solver.getTownsMap(), label);
+
+                Set<Town> stations = solver.getStations();
+                assertTrue(covers(towns, stations), label);
+                Set<Town> full = new FireStationSolver(copy(towns)).solve();
+                assertEquals(full.equals(stations), solver.matchesFullSolve(), label);
+
+                if (change % 20 == 19) {
+                    solver.resolve();
+                    assertEquals(full, solver.getStations(), label);
+                    assertTrue(solver.matchesFullSolve(), label);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the same random change to the solver and to the reference map.
+     */
+    private static void applyRandomChange(Random random, IncrementalFireStationSolver solver,
+            Map<Town, Set<Town>> towns, List<Town> names, int change) {
+        int kind = random.nextInt(10);
+        if (kind == 0 || names.size() < 2) {
+            Town town = new Town("new" + change, new Point(random.nextInt(1000), random.nextInt(1000)));
+            names.add(town);
+            towns.put(town, new HashSet<>());
+            solver.addTown(town);
+        } else if (kind == 1) {
+            Town town = names.remove(random.nextInt(names.size()));
+            for (Town neighbour : towns.remove(town)) {
+                towns.get(neighbour).remove(town);
+            }
+            solver.removeTown(town);
+        } else {
+            Town town1 = names.get(random.nextInt(names.size()));
+            Town town2 = names.get(random.nextInt(names.size()));
+            if (town1.equals(town2)) {
+                return;
+            }
+            if (towns.get(town1).contains(town2)) {
+                towns.get(town1).remove(town2);
+                towns.get(town2).remove(town1);
+                solver.removeEdge(town1, town2);
+            } else {
+                towns.get(town1).add(town2);
+                towns.get(town2).add(town1);
+                solver.addEdge(town1, town2);
+            }
+        }
+    }
+
+    private static boolean covers(Map<Town, Set<Town>> towns, Set<Town> stations) {
+        for (Map.Entry<Town, Set<Town>> entry : towns.entrySet()) {
+            boolean covered = stations.contains(entry.getKey());
+            for (Town neighbour : entry.getValue()) {
+                covered |= stations.contains(neighbour);
+            }
+            if (!covered) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<Town, Set<Town>> copy(Map<Town, Set<Town>> towns) {
+        Map<Town, Set<Town>> copy = new HashMap<>();
+        for (Map.Entry<Town, Set<Town>> entry : towns.entrySet()) {
+            copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * [KCoverageFireStationSolverTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that every town gets the stations it demands, or all its neighbourhood holds if that is fewer.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class KCoverageFireStationSolverTest {
+    @Test
+    public void meetsRandomDemands() {
+        Random random = new Random(22);
+        for (int map = 0; map < 200; map++) {
+            TownGraph graph = RandomMaps.random(random, random.nextInt(80), random.nextDouble() * 0.15);
+            int[] demands = new int[graph.getTownCount()];
+            for (int town = 0; town < demands.length; town++) {
+                demands[town] = random.nextInt(4);
+            }
+            KCoverageFireStationSolver solver = new KCoverageFireStationSolver(graph, demands);
+            int[] stations = solver.solveIndices();
+            String label = "map " + map;
+
+            int[] infeasible = new int[demands.length];
+            int infeasibleCount = 0;
+            for (int town = 0; town < demands.length; town++) {
+                if (demands[town] > graph.degree(town) + 1) {
+                    infeasible[infeasibleCount++] = town;
+                }
+            }
+            assertArrayEquals(Arrays.copyOf(infeasible, infeasibleCount), solver.getInfeasibleTowns(), label);
+
+            boolean[] isStation = new boolean[demands.length];
+            for (int station : stations) {
+                assertFalse(isStation[station], label + " places town " + station + " twice");
+                isStation[station] = true;
+            }
+            for (int town = 0; town < demands.length; town++) {
+                assertTrue(stationsAround(graph, isStation, town) >= Math.min(demands[town], graph.degree(town) + 1),
+                        label + " leaves town " + town + " short");
+            }
+        }
+    }
+
+    @Test
+    public void placesNothingWithoutDemand() {
+        TownGraph graph = RandomMaps.random(new Random(23), 30, 0.1);
+        KCoverageFireStationSolver solver = new KCoverageFireStationSolver(graph, new int[graph.getTownCount()]);
+        assertEquals(0, solver.solveIndices().length);
+        assertEquals(0, solver.getInfeasibleTowns().length);
+    }
+
+    @Test
+    public void oneStationEachCoversEveryTown() {
+        Random random = new Random(24);
+        for (int map = 0; map < 100; map++) {
+            TownGraph graph = RandomMaps.random(random, 1 + random.nextInt(16), random.nextDouble() * 0.3);
+            int[] stations = new KCoverageFireStationSolver(graph, 1).solveIndices();
+            assertTrue(RandomMaps.covers(graph, stations), "map " + map);
+            assertTrue(stations.length >= RandomMaps.minimumStations(graph), "map " + map);
+        }
+    }
+
+    private static int stationsAround(TownGraph graph, boolean[] isStation, int town) {
+        int count = isStation[town] ? 1 : 0;
+        for (int i = graph.offsets()[town]; i < graph.offsets()[town + 1]; i++) {
+            count += isStation[graph.neighbours()[i]] ? 1 : 0;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * [LocalSearchFireStationSolverTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that local search keeps every town covered and never does worse than it started.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class LocalSearchFireStationSolverTest {
+    @Test
+    public void improvedAnswersStillCover() {
+        Random random = new Random(16);
+        for (int map = 0; map < 100; map++) {
+            TownGraph graph = RandomMaps.random(random, 1 + random.nextInt(20), 0.05 + random.nextDouble() * 0.3);
+            int[] greedy = new FireStationSolver(graph).solveIndices();
+            int[] improved = new LocalSearchFireStationSolver(graph).improve(greedy);
+            assertTrue(RandomMaps.covers(graph, improved), "map " + map);
+            assertTrue(improved.length <= greedy.length, "map " + map);
+            assertTrue(improved.length >= RandomMaps.minimumStations(graph), "map " + map);
+        }
+    }
+
+    @Test
+    public void runsOnOneSolverDoNotShareAnswers() {
+        Random random = new Random(17);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int map = 0; map < 10; map++) {
+                TownGraph graph = RandomMaps.random(random, 18, 0.15);
+                LocalSearchFireStationSolver solver = new LocalSearchFireStationSolver(graph, pool);
+                CompletableFuture<LocalSearchFireStationSolver.Result> first =
+                        CompletableFuture.supplyAsync(() -> solver.solve(50));
+                CompletableFuture<LocalSearchFireStationSolver.Result> second =
+                        CompletableFuture.supplyAsync(() -> solver.solve(50));
+                int minimum = RandomMaps.minimumStations(graph);
+                for (LocalSearchFireStationSolver.Result result : Arrays.asList(first.join(), second.join())) {
+                    assertTrue(RandomMaps.covers(graph, result.getStations()), "map " + map);
+                    assertTrue(result.getStations().length >= minimum, "map " + map);
+                    assertTrue(result.getStations().length <= result.getGreedyCount(), "map " + map);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * [OutOfCoreFireStationSolverTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that solving a snapshot from disk places FireStationSolver's stations in its order.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutOfCoreFireStationSolverTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void matchesInMemorySolverOnSavedSnapshots() throws IOException {
+        Random random = new Random(19);
+        File snapshot = directory.resolve("map.tmap").toFile();
+        for (int map = 0; map < 100; map++) {
+            TownGraph graph = RandomMaps.random(random, random.nextInt(300), random.nextDouble() * 0.05);
+            TownMapSerializer.writeGraphToSnapshot(graph, snapshot);
+            assertSameStations(graph, snapshot, "map " + map);
+        }
+    }
+
+    @Test
+    public void matchesInMemorySolverOnConvertedTextMaps() throws IOException {
+        Random random = new Random(20);
+        File text = directory.resolve("map.txt").toFile();
+        File snapshot = directory.resolve("map.tmap").toFile();
+        for (int map = 0; map < 30; map++) {
+            TownMapSerializer.writeGraphToFile(RandomMaps.random(random, 1 + random.nextInt(200), 0.03), text);
+            TownMapConverter.convert(text, snapshot);
+            assertSameStations(TownMapSerializer.readGraphFromFile(text), snapshot, "map " + map);
+        }
+    }
+
+    private static void assertSameStations(TownGraph graph, File snapshot, String label) throws IOException {
+        try (OutOfCoreFireStationSolver solver = new OutOfCoreFireStationSolver(snapshot)) {
+            assertEquals(graph.getTownCount(), solver.getTownCount(), label);
+            assertEquals(graph.getEdgeCount(), solver.getEdgeCount(), label);
+            for (int town = 0; town < graph.getTownCount(); town++) {
+                assertEquals(graph.getName(town), solver.getName(town), label);
+            }
+            assertArrayEquals(new FireStationSolver(graph).solveIndices(), solver.solveIndices(), label);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * [ParallelFireStationSolverTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that solving components in parallel picks the sequential solver's stations in its order.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class ParallelFireStationSolverTest {
+    @Test
+    public void matchesSequentialSolver() {
+        Random random = new Random(4);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int map = 0; map < 100; map++) {
+                // sparse maps fall apart into many components
+                TownGraph graph = RandomMaps.random(random, 1 + random.nextInt(300), random.nextDouble() * 0.01);
+                int[] expectedScores = new int[graph.getTownCount()];
+                int[] actualScores = new int[graph.getTownCount()];
+                int[] expected = new FireStationSolver(graph).solveIndices(expectedScores);
+                int[] actual = new ParallelFireStationSolver(graph, pool).solveIndices(actualScores);
+                assertArrayEquals(expected, actual, "map " + map);
+                assertArrayEquals(expectedScores, actualScores, "map " + map);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void subgraphsMatchWhicheverWayTheyAreIndexed() {
+        TownGraph graph = RandomMaps.random(new Random(6), 200, 0.02);
+        for (int[] component : graph.components()) {
+            TownGraph subgraph = graph.subgraph(component);
+            for (int i = 0; i < component.length; i++) {
+                assertArrayEquals(neighbourNames(graph, component[i]), neighbourNames(subgraph, i));
+            }
+        }
+    }
+
+    private static String[] neighbourNames(TownGraph graph, int town) {
+        String[] names = new String[graph.degree(town)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = graph.getName(graph.neighbours()[graph.offsets()[town] + i]);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * [RandomMaps.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Small seeded random maps and brute-force checks shared by the tests.
+ */
+
+import java.util.Random;
+
+public class RandomMaps {
+    /**
+     * @return a map whose towns sit at random points and each pair of which is joined with the
+     *         given probability
+     */
+    public static TownGraph random(Random random, int towns, double roadProbability) {
+        TownGraph.Builder builder = new TownGraph.Builder(towns);
+        for (int i = 0; i < towns; i++) {
+            builder.addTown("t" + i, random.nextInt(1000), random.nextInt(1000));
+        }
+        for (int i = 0; i < towns; i++) {
+            for (int j = i + 1; j < towns; j++) {
+                if (random.nextDouble() < roadProbability) {
+                    builder.addEdge(i, j);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return whether every town is a station or next to one
+     */
+    public static boolean covers(TownGraph graph, int[] stations) {
+        boolean[] covered = new boolean[graph.getTownCount()];
+        for (int station : stations) {
+            covered[station] = true;
+            for (int i = graph.offsets()[station]; i < graph.offsets()[station + 1]; i++) {
+                covered[graph.neighbours()[i]] = true;
+            }
+        }
+        for (boolean town : covered) {
+            if (!town) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tries every subset of towns; only for maps of up to about 20 towns.
+     * @return the fewest stations that cover every town
+     */
+    public static int minimumStations(TownGraph graph) {
+        int townCount = graph.getTownCount();
+        int[] closed = new int[townCount];
+        for (int town = 0; town < townCount; town++) {
+            closed[town] = 1 << town;
+            for (int i = graph.offsets()[town]; i < graph.offsets()[town + 1]; i++) {
+                closed[town] |= 1 << graph.neighbours()[i];
+            }
+        }
+        int all = (1 << townCount) - 1;
+        int fewest = townCount;
+        for (int subset = 0; subset <= all; subset++) {
+            int size = Integer.bitCount(subset);
+            if (size >= fewest) {
+                continue;
+            }
+            int covered = 0;
+            for (int rest = subset; rest != 0; rest &= rest - 1) {
+                covered |= closed[Integer.numberOfTrailingZeros(rest)];
+            }
+            if (covered == all) {
+                fewest = size;
+            }
+        }
+        return fewest;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * [SolveCacheTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks cache hits, misses and evictions in memory and the fingerprint-keyed files on disk.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.Point;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SolveCacheTest {
+    // room in memory for two entries of three stations each
+    private static final long TWO_ENTRIES = 2 * (200 + 4 * 3);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void hitsOnlyTheSameSourceAndOptions() {
+        TownGraph graph = RandomMaps.random(new Random(20), 10, 0.2);
+        SolveCache cache = new SolveCache(TWO_ENTRIES);
+        assertNull(cache.get("a", graph, "greedy"));
+        cache.put("a", graph, "greedy", new int[] {1, 2, 3});
+
+        int[] stations = cache.get("a", graph, "greedy");
+        assertArrayEquals(new int[] {1, 2, 3}, stations);
+        stations[0] = 9;
+        assertArrayEquals(new int[] {1, 2, 3}, cache.get("a", graph, "greedy"));
+
+        assertNull(cache.get("b", graph, "greedy"));
+        assertNull(cache.get("a", graph, "coverage radius=5"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        TownGraph graph = RandomMaps.random(new Random(21), 10, 0.2);
+        SolveCache cache = new SolveCache(TWO_ENTRIES);
+        cache.put("a", graph, "greedy", new int[] {1, 2, 3});
+        cache.put("b", graph, "greedy", new int[] {4, 5, 6});
+        cache.get("a", graph, "greedy");
+        cache.put("c", graph, "greedy", new int[] {7, 8, 9});
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b", graph, "greedy"));
+        assertArrayEquals(new int[] {1, 2, 3}, cache.get("a", graph, "greedy"));
+        assertArrayEquals(new int[] {7, 8, 9}, cache.get("c", graph, "greedy"));
+
+        cache.put("d", graph, "greedy", new int[100]);
+        assertNull(cache.get("d", graph, "greedy"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void diskKeepsResultsForTheSameGraphUnderAnySource() {
+        TownGraph graph = RandomMaps.random(new Random(22), 10, 0.2);
+        TownGraph other = RandomMaps.random(new Random(23), 10, 0.2);
+        new SolveCache(TWO_ENTRIES, directory).put("a", graph, "greedy", new int[] {1, 2, 3});
+
+        SolveCache cache = new SolveCache(TWO_ENTRIES, directory);
+        assertArrayEquals(new int[] {1, 2, 3}, cache.get("b", RandomMaps.random(new Random(22), 10, 0.2), "greedy"));
+        assertEquals(1, cache.size());
+        assertNull(cache.get("c", other, "greedy"));
+        assertNull(cache.get("c", graph, "coverage radius=5"));
+    }
+
+    @Test
+    public void versionsShareAGraphIdUntilTheirTownsOrRoadsChange() {
+        Map<Town, Set<Town>> map = RandomMaps.random(new Random(24), 10, 0.2).toMap();
+        TownRegistry registry = TownRegistry.of(map.keySet());
+        TownMapVersion version = TownMapVersion.fromMap(map);
+        Town town = map.keySet().iterator().next();
+        assertEquals(version.getGraphId(), version.withStations(Set.of(town)).getGraphId());
+        assertNotEquals(version.getGraphId(), TownMapVersion.fromMap(map).getGraphId());
+        Town added = registry.intern("added", new Point(0, 0));
+        assertNotEquals(version.getGraphId(), version.withTown(added).getGraphId());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * [SolverMetricsTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that the peak uncovered count follows what each kind of pass actually had left to cover.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SolverMetricsTest {
+    @BeforeEach
+    public void enable() {
+        SolverMetrics.setEnabled(true);
+        SolverMetrics.reset();
+    }
+
+    @AfterEach
+    public void disable() {
+        SolverMetrics.reset();
+        SolverMetrics.setEnabled(false);
+    }
+
+    @Test
+    public void greedyPassStartsWithEveryTownUncovered() {
+        TownGraph graph = path(10);
+        new FireStationSolver(graph).solveIndices();
+        assertEquals(10L, SolverMetrics.snapshot().get("peakUncovered"));
+    }
+
+    @Test
+    public void kCoveragePassCountsOnlyTownsThatNeedStations() {
+        int[] demands = new int[10];
+        demands[2] = 1;
+        demands[5] = 2;
+        demands[7] = 1;
+        new KCoverageFireStationSolver(path(10), demands).solveIndices();
+        assertEquals(3L, SolverMetrics.snapshot().get("peakUncovered"));
+    }
+
+    @Test
+    public void incrementalRepairCountsTheTownsAChangeUncovered() {
+        // a star: the hub is the only station, so removing it uncovers every leaf
+        Map<Town, Set<Town>> map = new HashMap<>();
+        Town hub = new Town("hub", new Point(0, 0));
+        map.put(hub, new HashSet<>());
+        for (int i = 0; i < 5; i++) {
+            Town leaf = new Town("leaf" + i, new Point(i, 1));
+            map.put(leaf, new HashSet<>(Set.of(hub)));
+            map.get(hub).add(leaf);
+        }
+        IncrementalFireStationSolver solver = new IncrementalFireStationSolver(map);
+        SolverMetrics.reset();
+        solver.removeTown(hub);
+        assertEquals(5L, SolverMetrics.snapshot().get("peakUncovered"));
+    }
+
+    private static TownGraph path(int towns) {
+        TownGraph.Builder builder = new TownGraph.Builder();
+        for (int i = 0; i < towns; i++) {
+            builder.addTown("t" + i, i, 0);
+        }
+        for (int i = 1; i < towns; i++) {
+            builder.addEdge(i - 1, i);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * [TownMapReaderTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks the line numbers the text parser reports and that Windows line endings read the same.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TownMapReaderTest {
+    private static final String MAP = "Town a{1 2}\n\nTown b{3 4}\nTown c{-5 6}\nEdge a b\nEdge b c\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void windowsLineEndingsReadTheSame() throws IOException {
+        TownGraph unix = TownMapReader.read(write(MAP));
+        TownGraph windows = TownMapReader.read(write(MAP.replace("\n", "\r\n")));
+        assertEquals(3, windows.getTownCount());
+        assertEquals(2, windows.getEdgeCount());
+        for (int town = 0; town < unix.getTownCount(); town++) {
+            assertEquals(unix.getName(town), windows.getName(town));
+            assertEquals(unix.getX(town), windows.getX(town));
+            assertEquals(unix.getY(town), windows.getY(town));
+        }
+        assertArrayEquals(unix.offsets(), windows.offsets());
+        assertArrayEquals(unix.neighbours(), windows.neighbours());
+    }
+
+    @Test
+    public void lastLineNeedsNoNewline() throws IOException {
+        assertEquals(2, TownMapReader.read(write(MAP.trim())).getEdgeCount());
+        assertEquals(2, TownMapReader.read(write(MAP.replace("\n", "\r\n").trim())).getEdgeCount());
+    }
+
+    @Test
+    public void errorsNameTheirLine() throws IOException {
+        // blank lines count towards the line number
+        assertErrorOnLine(3, MAP.replace("Town b{3 4}", "Tower b{3 4}"));
+        assertErrorOnLine(3, MAP.replace("Town b{3 4}", "Town b{3 4"));
+        assertErrorOnLine(3, MAP.replace("Town b{3 4}", "Town b{3 x}"));
+        assertErrorOnLine(3, MAP.replace("Town b{3 4}", "Town b{3 4} extra"));
+        assertErrorOnLine(3, MAP.replace("Town b{3 4}", "Town b{3 99999999999}"));
+        assertErrorOnLine(5, MAP.replace("Edge a b", "Edge a"));
+        assertErrorOnLine(5, MAP.replace("Edge a b", "Edge a d"));
+        assertErrorOnLine(5, MAP.replace("Edge a b", "Edge a d").replace("\n", "\r\n"));
+    }
+
+    @Test
+    public void errorsAfterTheFirstBufferNameTheirLine() throws IOException {
+        // enough towns to refill the read buffer several times
+        StringBuilder map = new StringBuilder();
+        int lines = 200_000;
+        for (int i = 0; i < lines; i++) {
+            map.append("Town t").append(i).append("{").append(i).append(" ").append(i).append("}\r\n");
+        }
+        map.append("Edge t0 missing\r\n");
+        assertErrorOnLine(lines + 1, map.toString());
+    }
+
+    private void assertErrorOnLine(int lineNumber, String contents) throws IOException {
+        File file = write(contents);
+        MapFormatException error = assertThrows(MapFormatException.class, () -> TownMapReader.read(file));
+        assertEquals(lineNumber, error.getLineNumber(), error.getMessage());
+        assertTrue(error.getMessage().startsWith(file.getName() + ", line " + lineNumber + ": "), error.getMessage());
+    }
+
+    private File write(String contents) throws IOException {
+        File file = Files.createTempFile(directory, "map", ".txt").toFile();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
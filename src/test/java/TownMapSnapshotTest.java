@@ -0,0 +1,133 @@
+/*
+ * [TownMapSnapshotTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that maps round-trip through the binary snapshot and the text format, and that snapshots
+ * with corrupt rows are refused.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TownMapSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void layoutOneRoundTrips() throws IOException {
+        assertRoundTrips(TownMapSerializer.readGraphFromFile(new File("layoutOne.txt")));
+    }
+
+    @Test
+    public void layoutTwoRoundTrips() throws IOException {
+        assertRoundTrips(TownMapSerializer.readGraphFromFile(new File("layoutTwo.txt")));
+    }
+
+    @Test
+    public void emptyMapRoundTrips() throws IOException {
+        File text = directory.resolve("empty.txt").toFile();
+        TownMapSerializer.writeGraphToFile(new TownGraph.Builder().build(), text);
+        TownGraph empty = TownMapSerializer.readGraphFromFile(text);
+        assertEquals(0, empty.getTownCount());
+        assertRoundTrips(empty);
+    }
+
+    @Test
+    public void unsortedRowIsRefused() throws IOException {
+        assertRefused(triangle(), new int[] {2, 1, 0, 2, 0, 1}, "neighbours of town 0 are not strictly ascending");
+    }
+
+    @Test
+    public void duplicateNeighbourIsRefused() throws IOException {
+        assertRefused(triangle(), new int[] {1, 1, 0, 2, 0, 1}, "neighbours of town 0 are not strictly ascending");
+    }
+
+    @Test
+    public void selfLoopIsRefused() throws IOException {
+        assertRefused(triangle(), new int[] {0, 2, 0, 2, 0, 1}, "town 0 is its own neighbour");
+    }
+
+    @Test
+    public void oneWayRoadIsRefused() throws IOException {
+        assertRefused(threeTowns(new int[][] {{0, 1}, {1, 2}}), new int[] {1, 0, 2, 0}, "town 2 does not list its neighbour 1");
+    }
+
+    @Test
+    public void neighbourOutOfRangeIsRefused() throws IOException {
+        assertRefused(triangle(), new int[] {1, 3, 0, 2, 0, 1}, "neighbour index out of range");
+    }
+
+    private static TownGraph triangle() {
+        return threeTowns(new int[][] {{0, 1}, {1, 2}, {0, 2}});
+    }
+
+    private static TownGraph threeTowns(int[][] roads) {
+        TownGraph.Builder builder = new TownGraph.Builder();
+        builder.addTown("a", 0, 0);
+        builder.addTown("b", 1, 0);
+        builder.addTown("c", 0, 1);
+        for (int[] road : roads) {
+            builder.addEdge(road[0], road[1]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Saves the graph as a snapshot, overwrites its neighbour section and checks that reading it
+     * fails with the given message.
+     */
+    private void assertRefused(TownGraph graph, int[] neighbours, String message) throws IOException {
+        File snapshot = directory.resolve("corrupt.tmap").toFile();
+        TownMapSerializer.writeGraphToSnapshot(graph, snapshot);
+        int nameByteCount = 0;
+        for (int town = 0; town < graph.getTownCount(); town++) {
+            nameByteCount += graph.getName(town).length();
+        }
+        TownMapSnapshot.Layout layout = new TownMapSnapshot.Layout(graph.getTownCount(), neighbours.length,
+                nameByteCount);
+        assertEquals(layout.fileSize, snapshot.length());
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.seek(layout.neighboursPosition);
+            for (int neighbour : neighbours) {
+                file.writeInt(Integer.reverseBytes(neighbour));
+            }
+        }
+        IOException error = assertThrows(IOException.class, () -> TownMapSerializer.readGraphFromSnapshot(snapshot));
+        assertTrue(error.getMessage().endsWith(message), error.getMessage());
+    }
+
+    /**
+     * Saves the graph as a snapshot, reads it back, then writes that as text and reads it again.
+     */
+    private void assertRoundTrips(TownGraph graph) throws IOException {
+        File snapshot = directory.resolve("map.tmap").toFile();
+        TownMapSerializer.writeGraphToSnapshot(graph, snapshot);
+        TownGraph fromSnapshot = TownMapSerializer.readGraphFromSnapshot(snapshot);
+        assertSameGraph(graph, fromSnapshot);
+
+        File text = directory.resolve("map.txt").toFile();
+        TownMapSerializer.writeGraphToFile(fromSnapshot, text);
+        assertSameGraph(graph, TownMapSerializer.readGraphFromFile(text));
+    }
+
+    private static void assertSameGraph(TownGraph expected, TownGraph actual) {
+        assertEquals(expected.getTownCount(), actual.getTownCount());
+        assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+        for (int town = 0; town < expected.getTownCount(); town++) {
+            assertEquals(expected.getName(town), actual.getName(town));
+            assertEquals(expected.getX(town), actual.getX(town), expected.getName(town));
+            assertEquals(expected.getY(town), actual.getY(town), expected.getName(town));
+        }
+        assertArrayEquals(expected.offsets(), actual.offsets());
+        assertArrayEquals(expected.neighbours(), actual.neighbours());
+    }
+}
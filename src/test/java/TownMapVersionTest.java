@@ -0,0 +1,145 @@
+/*
+ * [TownMapVersionTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks that replaying diff() between any two versions of a random edit history turns one into the other.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class TownMapVersionTest {
+    @Test
+    public void diffReplaysBetweenAnyTwoVersions() {
+        Random random = new Random(23);
+        // enough towns for the tree to grow past one and two levels partway through
+        List<TownMapVersion> history = randomHistory(random, 1500);
+        for (int pair = 0; pair < 300; pair++) {
+            TownMapVersion from = history.get(random.nextInt(history.size()));
+            TownMapVersion to = history.get(random.nextInt(history.size()));
+            Replay replay = new Replay(from);
+            from.diff(to, replay);
+            String label = "pair " + pair;
+            assertEquals(to.toMap(), replay.map, label);
+            assertEquals(to.getStations(), replay.stations, label);
+        }
+    }
+
+    @Test
+    public void diffReportsOnlyWhatChanged() {
+        Random random = new Random(24);
+        List<TownMapVersion> history = randomHistory(random, 200);
+        TownMapVersion last = history.get(history.size() - 1);
+        Replay same = new Replay(last);
+        last.diff(last, same);
+        assertEquals(0, same.events);
+
+        List<Town> towns = new ArrayList<>(last.toMap().keySet());
+        Town town1 = towns.get(0);
+        Town town2 = null;
+        for (Town town : towns) {
+            if (town != town1 && !last.isConnected(town1, town)) {
+                town2 = town;
+                break;
+            }
+        }
+        Replay road = new Replay(last);
+        last.diff(last.withRoad(town1, town2), road);
+        assertEquals(1, road.events);
+
+        Set<Town> stations = new HashSet<>(last.getStations());
+        if (!stations.remove(town1)) {
+            stations.add(town1);
+        }
+        Replay station = new Replay(last);
+        last.diff(last.withStations(stations), station);
+        assertEquals(1, station.events);
+    }
+
+    /**
+     * @return versions from the empty map on, each one random edit after the last
+     */
+    private static List<TownMapVersion> randomHistory(Random random, int townCount) {
+        TownRegistry registry = new TownRegistry();
+        List<Town> towns = new ArrayList<>();
+        List<TownMapVersion> history = new ArrayList<>();
+        TownMapVersion version = TownMapVersion.EMPTY;
+        history.add(version);
+        while (towns.size() < townCount) {
+            int edit = random.nextInt(10);
+            if (edit < 4 || towns.size() < 2) {
+                Town town = registry.intern("t" + towns.size(), new Point(random.nextInt(1000), random.nextInt(1000)));
+                towns.add(town);
+                version = version.withTown(town);
+            } else if (edit < 9) {
+                version = version.withRoad(towns.get(random.nextInt(towns.size())), towns.get(random.nextInt(towns.size())));
+            } else {
+                Set<Town> stations = new HashSet<>();
+                for (Town town : towns) {
+                    if (random.nextInt(4) == 0) {
+                        stations.add(town);
+                    }
+                }
+                version = version.withStations(stations);
+            }
+            history.add(version);
+        }
+        return history;
+    }
+
+    /**
+     * Applies the changes diff() reports to a copy of a version, checking that roads only ever
+     * join towns that are there and that towns are removed only once their roads are gone.
+     */
+    private static class Replay implements TownMapVersion.Changes {
+        final Map<Town, Set<Town>> map;
+        final Set<Town> stations;
+        int events;
+
+        Replay(TownMapVersion version) {
+            map = version.toMap();
+            stations = new HashSet<>(version.getStations());
+        }
+
+        @Override
+        public void townAdded(Town town) {
+            events++;
+            assertNull(map.put(town, new HashSet<>()), town.getName());
+        }
+
+        @Override
+        public void townRemoved(Town town) {
+            events++;
+            assertEquals(Set.of(), map.remove(town), town.getName());
+            stations.remove(town);
+        }
+
+        @Override
+        public void roadAdded(Town town1, Town town2) {
+            events++;
+            assertTrue(map.get(town1).add(town2) && map.get(town2).add(town1), town1.getName() + " " + town2.getName());
+        }
+
+        @Override
+        public void roadRemoved(Town town1, Town town2) {
+            events++;
+            assertTrue(map.get(town1).remove(town2) && map.get(town2).remove(town1), town1.getName() + " " + town2.getName());
+        }
+
+        @Override
+        public void stationChanged(Town town, boolean hasStation) {
+            events++;
+            assertTrue(hasStation ? stations.add(town) : stations.remove(town), town.getName());
+        }
+    }
+}
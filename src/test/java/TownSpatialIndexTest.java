@@ -0,0 +1,96 @@
+/*
+ * [TownSpatialIndexTest.java]
+ * @author agent
+ * @version Oct 17, 2026
+ * Checks the roads and towns the spatial index finds against scanning every one of them.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class TownSpatialIndexTest {
+    @Test
+    public void findsTheRoadsCrossingAnArea() {
+        Random random = new Random(10);
+        TownSpatialIndex index = new TownSpatialIndex(128);
+        List<Town> towns = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // mostly close together, with a few far out so some roads span many cells
+            int spread = i % 10 == 0 ? 100_000 : 3_000;
+            Town town = new Town("t" + i, new Point(random.nextInt(spread) - spread / 2, random.nextInt(spread) - spread / 2));
+            towns.add(town);
+            index.addTown(town);
+        }
+        List<Town[]> roads = new ArrayList<>();
+        for (int change = 0; change < 2_000; change++) {
+            if (roads.isEmpty() || random.nextInt(3) > 0) {
+                Town[] road = {towns.get(random.nextInt(towns.size())), towns.get(random.nextInt(towns.size()))};
+                if (road[0] == road[1] || indexOf(roads, road[0], road[1]) >= 0) {
+                    continue;
+                }
+                roads.add(road);
+                index.addRoad(road[0], road[1]);
+            } else {
+                Town[] road = roads.remove(random.nextInt(roads.size()));
+                // either way round removes it
+                if (random.nextBoolean()) {
+                    index.removeRoad(road[0], road[1]);
+                } else {
+                    index.removeRoad(road[1], road[0]);
+                }
+            }
+            if (change % 50 == 0) {
+                Rectangle area = new Rectangle(random.nextInt(8_000) - 4_000, random.nextInt(8_000) - 4_000,
+                        random.nextInt(2_000), random.nextInt(2_000));
+                assertSameRoads(roads, index.roadsIn(area), area);
+                assertEquals(townsIn(towns, area), new HashSet<>(index.townsIn(area)));
+            }
+        }
+    }
+
+    private static void assertSameRoads(List<Town[]> roads, List<TownSpatialIndex.Road> found, Rectangle area) {
+        Set<String> expected = new HashSet<>();
+        for (Town[] road : roads) {
+            Point from = road[0].getOrigin();
+            Point to = road[1].getOrigin();
+            if (area.intersectsLine(from.x, from.y, to.x, to.y)) {
+                expected.add(road[0].getName() + "-" + road[1].getName());
+            }
+        }
+        List<String> actual = new ArrayList<>();
+        for (TownSpatialIndex.Road road : found) {
+            actual.add(road.getFrom().getName() + "-" + road.getTo().getName());
+        }
+        // each road is found once
+        assertEquals(actual.size(), new HashSet<>(actual).size());
+        assertEquals(expected, new HashSet<>(actual));
+    }
+
+    private static Set<Town> townsIn(List<Town> towns, Rectangle area) {
+        Set<Town> found = new HashSet<>();
+        for (Town town : towns) {
+            if (area.contains(town.getOrigin())) {
+                found.add(town);
+            }
+        }
+        return found;
+    }
+
+    private static int indexOf(List<Town[]> roads, Town town1, Town town2) {
+        for (int i = 0; i < roads.size(); i++) {
+            Town[] road = roads.get(i);
+            if ((road[0] == town1 && road[1] == town2) || (road[0] == town2 && road[1] == town1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}